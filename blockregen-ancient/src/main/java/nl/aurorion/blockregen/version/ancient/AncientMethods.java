@@ -4,10 +4,11 @@ import com.cryptomorin.xseries.XBlock;
 import com.cryptomorin.xseries.XMaterial;
 import lombok.extern.java.Log;
 import nl.aurorion.blockregen.version.api.Methods;
+import org.bukkit.ChunkSnapshot;
 import org.bukkit.DyeColor;
+import org.bukkit.Material;
 import org.bukkit.TreeSpecies;
 import org.bukkit.block.Block;
-import org.bukkit.block.BlockState;
 import org.bukkit.entity.Player;
 import org.bukkit.inventory.ItemStack;
 import org.bukkit.material.Colorable;
@@ -29,9 +30,22 @@ public class AncientMethods implements Methods {
     // Basically copy XBlock.getType(), but fix the 1.8 "Wood not found" and match only material outside of Colorable & Tree
     @Override
     public XMaterial getType(@NotNull Block block) {
-        BlockState state = block.getState();
-        MaterialData data = state.getData();
+        return matchType(block.getState().getData());
+    }
+
+    @Override
+    public XMaterial getType(@NotNull ChunkSnapshot snapshot, int x, int y, int z) {
+        Material material = Material.getMaterial(snapshot.getBlockTypeId(x, y, z));
+        return material == null ? null : matchType(material.getNewData((byte) snapshot.getBlockData(x, y, z)));
+    }
+
+    @Override
+    @NotNull
+    public Object getState(@NotNull ChunkSnapshot snapshot, int x, int y, int z) {
+        return snapshot.getBlockTypeId(x, y, z) << 4 | snapshot.getBlockData(x, y, z);
+    }
 
+    private XMaterial matchType(MaterialData data) {
         byte dataValue;
 
         if (data instanceof Tree) {
@@ -46,14 +60,14 @@ public class AncientMethods implements Methods {
         } else {
             // Ignore data
             dataValue = data.getData();
-            log.fine(String.format("Ignoring material data: %s:%d", state.getType(), dataValue));
+            log.fine(String.format("Ignoring material data: %s:%d", data.getItemType(), dataValue));
 
-            return XMaterial.matchXMaterial(state.getType());
+            return XMaterial.matchXMaterial(data.getItemType());
         }
 
-        XMaterial xMaterial = XMaterial.matchXMaterial(String.format("%s:%d", block.getType().toString(), dataValue)).orElse(null);
+        XMaterial xMaterial = XMaterial.matchXMaterial(String.format("%s:%d", data.getItemType().toString(), dataValue)).orElse(null);
 
-        log.fine(String.format("Parsed material %s:%d into %s", state.getType(), dataValue, xMaterial));
+        log.fine(String.format("Parsed material %s:%d into %s", data.getItemType(), dataValue, xMaterial));
 
         return xMaterial;
     }
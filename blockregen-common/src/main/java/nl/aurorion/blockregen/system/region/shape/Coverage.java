@@ -0,0 +1,13 @@
+package nl.aurorion.blockregen.system.region.shape;
+
+/**
+ * How a shape covers an area of block columns, within its own vertical bounds.
+ */
+public enum Coverage {
+    // Every block is inside.
+    INSIDE,
+    // No block is inside.
+    OUTSIDE,
+    // Blocks have to be tested one by one.
+    PARTIAL
+}
@@ -0,0 +1,31 @@
+package nl.aurorion.blockregen.system.region.shape;
+
+import org.jetbrains.annotations.NotNull;
+
+public class CuboidShape extends RegionShape {
+
+    public CuboidShape(int minX, int minY, int minZ, int maxX, int maxY, int maxZ) {
+        super(Math.min(minX, maxX), Math.min(minY, maxY), Math.min(minZ, maxZ),
+                Math.max(minX, maxX), Math.max(minY, maxY), Math.max(minZ, maxZ));
+    }
+
+    @Override
+    public boolean contains(int x, int y, int z) {
+        return x >= minX && x <= maxX && y >= minY && y <= maxY && z >= minZ && z <= maxZ;
+    }
+
+    @Override
+    public @NotNull Coverage cover(int minX, int minZ, int maxX, int maxZ) {
+        if (outsideBounds(minX, minZ, maxX, maxZ))
+            return Coverage.OUTSIDE;
+
+        if (minX >= this.minX && maxX <= this.maxX && minZ >= this.minZ && maxZ <= this.maxZ)
+            return Coverage.INSIDE;
+        return Coverage.PARTIAL;
+    }
+
+    @Override
+    public @NotNull String serialize() {
+        return "cuboid;" + minX + ";" + minY + ";" + minZ + ";" + maxX + ";" + maxY + ";" + maxZ;
+    }
+}
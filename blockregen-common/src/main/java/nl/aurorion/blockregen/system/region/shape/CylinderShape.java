@@ -0,0 +1,56 @@
+package nl.aurorion.blockregen.system.region.shape;
+
+import org.jetbrains.annotations.NotNull;
+
+/**
+ * Vertical cylinder with an elliptic base.
+ */
+public class CylinderShape extends RegionShape {
+
+    private final double centerX, centerZ;
+    private final double radiusX, radiusZ;
+
+    public CylinderShape(double centerX, double centerZ, double radiusX, double radiusZ, int minY, int maxY) {
+        super((int) Math.floor(centerX - radiusX), Math.min(minY, maxY), (int) Math.floor(centerZ - radiusZ),
+                (int) Math.ceil(centerX + radiusX), Math.max(minY, maxY), (int) Math.ceil(centerZ + radiusZ));
+
+        if (radiusX <= 0 || radiusZ <= 0)
+            throw new IllegalArgumentException("Cylinder radius has to be positive.");
+
+        this.centerX = centerX;
+        this.centerZ = centerZ;
+        this.radiusX = radiusX;
+        this.radiusZ = radiusZ;
+    }
+
+    @Override
+    public boolean contains(int x, int y, int z) {
+        return y >= minY && y <= maxY && distance(x, z) <= 1;
+    }
+
+    // Squared distance from the axis, scaled so the outline is at 1.
+    private double distance(double x, double z) {
+        double dx = (x - centerX) / radiusX;
+        double dz = (z - centerZ) / radiusZ;
+        return dx * dx + dz * dz;
+    }
+
+    // The base is convex, if all corners are inside so is the whole area.
+    @Override
+    public @NotNull Coverage cover(int minX, int minZ, int maxX, int maxZ) {
+        double nearestX = Math.max(minX, Math.min(maxX, centerX));
+        double nearestZ = Math.max(minZ, Math.min(maxZ, centerZ));
+
+        if (distance(nearestX, nearestZ) > 1)
+            return Coverage.OUTSIDE;
+
+        if (distance(minX, minZ) <= 1 && distance(minX, maxZ) <= 1 && distance(maxX, minZ) <= 1 && distance(maxX, maxZ) <= 1)
+            return Coverage.INSIDE;
+        return Coverage.PARTIAL;
+    }
+
+    @Override
+    public @NotNull String serialize() {
+        return "cylinder;" + centerX + ";" + centerZ + ";" + radiusX + ";" + radiusZ + ";" + minY + ";" + maxY;
+    }
+}
@@ -0,0 +1,89 @@
+package nl.aurorion.blockregen.system.region.shape;
+
+import org.jetbrains.annotations.NotNull;
+
+/**
+ * Polygon extruded between two heights. Blocks on the outline are inside, same as with WorldEdit.
+ */
+public class PolygonShape extends RegionShape {
+
+    private final int[] xs;
+    private final int[] zs;
+
+    public PolygonShape(int[] xs, int[] zs, int minY, int maxY) {
+        super(min(xs), Math.min(minY, maxY), min(zs), max(xs), Math.max(minY, maxY), max(zs));
+
+        if (xs.length < 3 || xs.length != zs.length)
+            throw new IllegalArgumentException("A polygon needs at least three points.");
+
+        this.xs = xs.clone();
+        this.zs = zs.clone();
+    }
+
+    private static int min(int[] values) {
+        int min = Integer.MAX_VALUE;
+        for (int value : values)
+            min = Math.min(min, value);
+        return min;
+    }
+
+    private static int max(int[] values) {
+        int max = Integer.MIN_VALUE;
+        for (int value : values)
+            max = Math.max(max, value);
+        return max;
+    }
+
+    @Override
+    public boolean contains(int x, int y, int z) {
+        return y >= minY && y <= maxY && x >= minX && x <= maxX && z >= minZ && z <= maxZ && containsColumn(x, z);
+    }
+
+    // Crossing number, points on an edge count as inside.
+    private boolean containsColumn(int x, int z) {
+        boolean inside = false;
+
+        for (int i = 0, j = xs.length - 1; i < xs.length; j = i++) {
+            int x1 = xs[i], z1 = zs[i];
+            int x2 = xs[j], z2 = zs[j];
+
+            if (onEdge(x, z, x1, z1, x2, z2))
+                return true;
+
+            if ((z1 > z) != (z2 > z) && x < (double) (x2 - x1) * (z - z1) / (z2 - z1) + x1)
+                inside = !inside;
+        }
+        return inside;
+    }
+
+    private static boolean onEdge(int x, int z, int x1, int z1, int x2, int z2) {
+        long cross = (long) (x2 - x1) * (z - z1) - (long) (z2 - z1) * (x - x1);
+        return cross == 0
+                && x >= Math.min(x1, x2) && x <= Math.max(x1, x2)
+                && z >= Math.min(z1, z2) && z <= Math.max(z1, z2);
+    }
+
+    // Without an edge passing through the area, all of it is on the same side of the outline.
+    @Override
+    public @NotNull Coverage cover(int minX, int minZ, int maxX, int maxZ) {
+        if (outsideBounds(minX, minZ, maxX, maxZ))
+            return Coverage.OUTSIDE;
+
+        for (int i = 0, j = xs.length - 1; i < xs.length; j = i++) {
+            if (Math.max(xs[i], xs[j]) >= minX && Math.min(xs[i], xs[j]) <= maxX
+                    && Math.max(zs[i], zs[j]) >= minZ && Math.min(zs[i], zs[j]) <= maxZ)
+                return Coverage.PARTIAL;
+        }
+
+        return containsColumn(minX, minZ) ? Coverage.INSIDE : Coverage.OUTSIDE;
+    }
+
+    @Override
+    public @NotNull String serialize() {
+        StringBuilder builder = new StringBuilder("polygon;").append(minY).append(';').append(maxY);
+        for (int i = 0; i < xs.length; i++) {
+            builder.append(';').append(xs[i]).append(',').append(zs[i]);
+        }
+        return builder.toString();
+    }
+}
@@ -0,0 +1,82 @@
+package nl.aurorion.blockregen.system.region.shape;
+
+import lombok.Getter;
+import org.jetbrains.annotations.NotNull;
+
+import java.util.Locale;
+
+/**
+ * Shape of a region in block coordinates, with an inclusive bounding box.
+ */
+public abstract class RegionShape {
+
+    @Getter
+    protected final int minX, minY, minZ;
+    @Getter
+    protected final int maxX, maxY, maxZ;
+
+    protected RegionShape(int minX, int minY, int minZ, int maxX, int maxY, int maxZ) {
+        this.minX = minX;
+        this.minY = minY;
+        this.minZ = minZ;
+        this.maxX = maxX;
+        this.maxY = maxY;
+        this.maxZ = maxZ;
+    }
+
+    public abstract boolean contains(int x, int y, int z);
+
+    /**
+     * Coverage of the block columns between the given coordinates, inclusive. Only blocks between the vertical bounds count.
+     * Has to be exact for {@link Coverage#INSIDE} and {@link Coverage#OUTSIDE}, {@link Coverage#PARTIAL} is always safe.
+     */
+    @NotNull
+    public abstract Coverage cover(int minX, int minZ, int maxX, int maxZ);
+
+    /**
+     * @return String form read by {@link #parse(String)}.
+     */
+    @NotNull
+    public abstract String serialize();
+
+    protected boolean outsideBounds(int minX, int minZ, int maxX, int maxZ) {
+        return maxX < this.minX || minX > this.maxX || maxZ < this.minZ || minZ > this.maxZ;
+    }
+
+    /**
+     * @throws IllegalArgumentException If the string is not a valid shape.
+     */
+    @NotNull
+    public static RegionShape parse(@NotNull String input) {
+        String[] parts = input.split(";");
+
+        try {
+            switch (parts[0].toLowerCase(Locale.ROOT)) {
+                case "cuboid":
+                    return new CuboidShape(Integer.parseInt(parts[1]), Integer.parseInt(parts[2]), Integer.parseInt(parts[3]),
+                            Integer.parseInt(parts[4]), Integer.parseInt(parts[5]), Integer.parseInt(parts[6]));
+                case "polygon": {
+                    int[] xs = new int[parts.length - 3];
+                    int[] zs = new int[parts.length - 3];
+                    for (int i = 3; i < parts.length; i++) {
+                        String[] point = parts[i].split(",");
+                        xs[i - 3] = Integer.parseInt(point[0]);
+                        zs[i - 3] = Integer.parseInt(point[1]);
+                    }
+                    return new PolygonShape(xs, zs, Integer.parseInt(parts[1]), Integer.parseInt(parts[2]));
+                }
+                case "cylinder":
+                    return new CylinderShape(Double.parseDouble(parts[1]), Double.parseDouble(parts[2]),
+                            Double.parseDouble(parts[3]), Double.parseDouble(parts[4]),
+                            Integer.parseInt(parts[5]), Integer.parseInt(parts[6]));
+                case "sphere":
+                    return new SphereShape(Double.parseDouble(parts[1]), Double.parseDouble(parts[2]), Double.parseDouble(parts[3]),
+                            Double.parseDouble(parts[4]), Double.parseDouble(parts[5]), Double.parseDouble(parts[6]));
+                default:
+                    throw new IllegalArgumentException("Unknown region shape " + parts[0]);
+            }
+        } catch (IndexOutOfBoundsException | NumberFormatException e) {
+            throw new IllegalArgumentException("Invalid region shape " + input, e);
+        }
+    }
+}
@@ -0,0 +1,49 @@
+package nl.aurorion.blockregen.system.region.shape;
+
+import org.jetbrains.annotations.NotNull;
+
+/**
+ * Ellipsoid, a sphere when all radii are equal.
+ */
+public class SphereShape extends RegionShape {
+
+    private final double centerX, centerY, centerZ;
+    private final double radiusX, radiusY, radiusZ;
+
+    public SphereShape(double centerX, double centerY, double centerZ, double radiusX, double radiusY, double radiusZ) {
+        super((int) Math.floor(centerX - radiusX), (int) Math.floor(centerY - radiusY), (int) Math.floor(centerZ - radiusZ),
+                (int) Math.ceil(centerX + radiusX), (int) Math.ceil(centerY + radiusY), (int) Math.ceil(centerZ + radiusZ));
+
+        if (radiusX <= 0 || radiusY <= 0 || radiusZ <= 0)
+            throw new IllegalArgumentException("Sphere radius has to be positive.");
+
+        this.centerX = centerX;
+        this.centerY = centerY;
+        this.centerZ = centerZ;
+        this.radiusX = radiusX;
+        this.radiusY = radiusY;
+        this.radiusZ = radiusZ;
+    }
+
+    @Override
+    public boolean contains(int x, int y, int z) {
+        double dx = (x - centerX) / radiusX;
+        double dy = (y - centerY) / radiusY;
+        double dz = (z - centerZ) / radiusZ;
+        return dx * dx + dy * dy + dz * dz <= 1;
+    }
+
+    // Columns are never inside over the full height, only whole columns outside can be ruled out.
+    @Override
+    public @NotNull Coverage cover(int minX, int minZ, int maxX, int maxZ) {
+        double dx = (Math.max(minX, Math.min(maxX, centerX)) - centerX) / radiusX;
+        double dz = (Math.max(minZ, Math.min(maxZ, centerZ)) - centerZ) / radiusZ;
+
+        return dx * dx + dz * dz > 1 ? Coverage.OUTSIDE : Coverage.PARTIAL;
+    }
+
+    @Override
+    public @NotNull String serialize() {
+        return "sphere;" + centerX + ";" + centerY + ";" + centerZ + ";" + radiusX + ";" + radiusY + ";" + radiusZ;
+    }
+}
@@ -1,13 +1,10 @@
 package nl.aurorion.blockregen.system.region.struct;
 
-import lombok.AllArgsConstructor;
 import lombok.Getter;
-import lombok.RequiredArgsConstructor;
 import lombok.Setter;
+import nl.aurorion.blockregen.system.region.shape.RegionShape;
 import org.bukkit.Location;
 
-@RequiredArgsConstructor
-@AllArgsConstructor
 public class RegionSelection {
 
     @Getter
@@ -17,4 +14,21 @@ public class RegionSelection {
     @Getter
     @Setter
     private Location second;
+
+    // Null for cuboids, first and second are the bounding corners otherwise.
+    @Getter
+    private RegionShape shape;
+
+    public RegionSelection() {
+    }
+
+    public RegionSelection(Location first, Location second) {
+        this.first = first;
+        this.second = second;
+    }
+
+    public RegionSelection(Location first, Location second, RegionShape shape) {
+        this(first, second);
+        this.shape = shape;
+    }
 }
@@ -7,10 +7,11 @@ import lombok.extern.java.Log;
 import nl.aurorion.blockregen.StringUtil;
 import nl.aurorion.blockregen.version.api.Methods;
 import org.bukkit.Bukkit;
+import org.bukkit.ChunkSnapshot;
 import org.bukkit.DyeColor;
+import org.bukkit.Material;
 import org.bukkit.TreeSpecies;
 import org.bukkit.block.Block;
-import org.bukkit.block.BlockState;
 import org.bukkit.boss.BarColor;
 import org.bukkit.boss.BarStyle;
 import org.bukkit.boss.BossBar;
@@ -77,9 +78,22 @@ public class LegacyMethods implements Methods {
 
     @Override
     public XMaterial getType(@NotNull Block block) {
-        BlockState state = block.getState();
-        MaterialData data = state.getData();
+        return matchType(block.getState().getData());
+    }
+
+    @Override
+    public XMaterial getType(@NotNull ChunkSnapshot snapshot, int x, int y, int z) {
+        Material material = Material.getMaterial(snapshot.getBlockTypeId(x, y, z));
+        return material == null ? null : matchType(material.getNewData((byte) snapshot.getBlockData(x, y, z)));
+    }
+
+    @Override
+    @NotNull
+    public Object getState(@NotNull ChunkSnapshot snapshot, int x, int y, int z) {
+        return snapshot.getBlockTypeId(x, y, z) << 4 | snapshot.getBlockData(x, y, z);
+    }
 
+    private XMaterial matchType(MaterialData data) {
         byte dataValue;
 
         // Use Wood to match Leaves & Saplings correctly as well.
@@ -92,14 +106,14 @@ public class LegacyMethods implements Methods {
         } else {
             // Ignore data
             dataValue = data.getData();
-            log.fine(String.format("Ignoring material data: %s:%d", state.getType(), dataValue));
+            log.fine(String.format("Ignoring material data: %s:%d", data.getItemType(), dataValue));
 
-            return XMaterial.matchXMaterial(state.getType());
+            return XMaterial.matchXMaterial(data.getItemType());
         }
 
-        XMaterial xMaterial = XMaterial.matchXMaterial(String.format("%s:%d", block.getType().toString(), dataValue)).orElse(null);
+        XMaterial xMaterial = XMaterial.matchXMaterial(String.format("%s:%d", data.getItemType().toString(), dataValue)).orElse(null);
 
-        log.fine(String.format("Parsed material %s:%d into %s", state.getType(), dataValue, xMaterial));
+        log.fine(String.format("Parsed material %s:%d into %s", data.getItemType(), dataValue, xMaterial));
 
         return xMaterial;
     }
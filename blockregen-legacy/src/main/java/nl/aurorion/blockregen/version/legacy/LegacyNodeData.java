@@ -1,9 +1,15 @@
 package nl.aurorion.blockregen.version.legacy;
 
+import lombok.EqualsAndHashCode;
 import lombok.NoArgsConstructor;
 import lombok.ToString;
 import lombok.extern.java.Log;
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonWriter;
+import nl.aurorion.blockregen.version.api.CodecUtil;
 import nl.aurorion.blockregen.version.api.NodeData;
+import nl.aurorion.blockregen.version.api.NodeDataCodec;
+import org.bukkit.ChunkSnapshot;
 import org.bukkit.Material;
 import org.bukkit.block.Block;
 import org.bukkit.block.BlockFace;
@@ -14,11 +20,18 @@ import org.bukkit.material.MaterialData;
 import org.bukkit.material.Stairs;
 import org.bukkit.material.Tree;
 
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+
 @Log
 @ToString
+@EqualsAndHashCode
 @NoArgsConstructor
 public class LegacyNodeData implements NodeData {
 
+    public static final NodeDataCodec<LegacyNodeData> CODEC = new Codec();
+
     private BlockFace facing;
 
     private BlockFace treeFacing;
@@ -33,8 +46,22 @@ public class LegacyNodeData implements NodeData {
 
     @Override
     public void load(Block block) {
-        MaterialData data = block.getState().getData();
+        load(block.getState().getData(), block.getRelative(BlockFace.DOWN).getType());
+
+        log.fine(String.format("Loaded block data %s (%s)", block.getType(), this));
+    }
+
+    // Farmland under the block is a block of the snapshot on its own.
+    @Override
+    @SuppressWarnings("deprecation")
+    public void load(ChunkSnapshot snapshot, int x, int y, int z) {
+        Material material = Material.getMaterial(snapshot.getBlockTypeId(x, y, z));
 
+        if (material != null)
+            load(material.getNewData((byte) snapshot.getBlockData(x, y, z)), null);
+    }
+
+    private void load(MaterialData data, Material under) {
         if (data instanceof Directional) {
             this.facing = ((Directional) data).getFacing();
         }
@@ -52,13 +79,9 @@ public class LegacyNodeData implements NodeData {
         }
 
         // Check for farmland under this block
-        Block underBlock = block.getRelative(BlockFace.DOWN);
-
-        if (underBlock.getType() == Material.SOIL) {
+        if (under == Material.SOIL) {
             this.farmland = true;
         }
-
-        log.fine(String.format("Loaded block data %s (%s)", block.getType(), this));
     }
 
     @Override
@@ -90,4 +113,77 @@ public class LegacyNodeData implements NodeData {
         state.update(true);
     }
 
+    private static class Codec implements NodeDataCodec<LegacyNodeData> {
+
+        @Override
+        public String getTag() {
+            return "legacy";
+        }
+
+        @Override
+        public Class<LegacyNodeData> getType() {
+            return LegacyNodeData.class;
+        }
+
+        @Override
+        public void write(LegacyNodeData data, JsonWriter writer) throws IOException {
+            CodecUtil.writeEnum(writer, "facing", data.facing);
+            CodecUtil.writeEnum(writer, "treeFacing", data.treeFacing);
+
+            if (data.inverted)
+                writer.name("inverted").value(true);
+            if (data.age != -1)
+                writer.name("age").value(data.age);
+            if (data.farmland)
+                writer.name("farmland").value(true);
+        }
+
+        @Override
+        public LegacyNodeData read(JsonReader reader) throws IOException {
+            LegacyNodeData data = new LegacyNodeData();
+
+            while (reader.hasNext()) {
+                switch (reader.nextName()) {
+                    case "facing":
+                        data.facing = CodecUtil.readEnum(reader, BlockFace.class);
+                        break;
+                    case "treeFacing":
+                        data.treeFacing = CodecUtil.readEnum(reader, BlockFace.class);
+                        break;
+                    case "inverted":
+                        data.inverted = reader.nextBoolean();
+                        break;
+                    case "age":
+                        data.age = reader.nextInt();
+                        break;
+                    case "farmland":
+                        data.farmland = reader.nextBoolean();
+                        break;
+                    default:
+                        reader.skipValue();
+                }
+            }
+            return data;
+        }
+
+        @Override
+        public void write(LegacyNodeData data, DataOutput output) throws IOException {
+            CodecUtil.writeEnum(output, data.facing);
+            CodecUtil.writeEnum(output, data.treeFacing);
+            output.writeBoolean(data.inverted);
+            output.writeInt(data.age);
+            output.writeBoolean(data.farmland);
+        }
+
+        @Override
+        public LegacyNodeData read(DataInput input) throws IOException {
+            LegacyNodeData data = new LegacyNodeData();
+            data.facing = CodecUtil.readEnum(input, BlockFace.class);
+            data.treeFacing = CodecUtil.readEnum(input, BlockFace.class);
+            data.inverted = input.readBoolean();
+            data.age = input.readInt();
+            data.farmland = input.readBoolean();
+            return data;
+        }
+    }
 }
@@ -1,7 +1,19 @@
 package nl.aurorion.blockregen.version.legacy;
 
+import com.sk89q.worldedit.BlockVector2D;
+import com.sk89q.worldedit.IncompleteRegionException;
+import com.sk89q.worldedit.Vector;
+import com.sk89q.worldedit.Vector2D;
 import com.sk89q.worldedit.bukkit.WorldEditPlugin;
 import com.sk89q.worldedit.bukkit.selections.Selection;
+import com.sk89q.worldedit.regions.CylinderRegion;
+import com.sk89q.worldedit.regions.EllipsoidRegion;
+import com.sk89q.worldedit.regions.Polygonal2DRegion;
+import com.sk89q.worldedit.regions.Region;
+import nl.aurorion.blockregen.system.region.shape.CylinderShape;
+import nl.aurorion.blockregen.system.region.shape.PolygonShape;
+import nl.aurorion.blockregen.system.region.shape.RegionShape;
+import nl.aurorion.blockregen.system.region.shape.SphereShape;
 import nl.aurorion.blockregen.system.region.struct.RegionSelection;
 import nl.aurorion.blockregen.version.api.WorldEditProvider;
 import org.bukkit.Location;
@@ -9,6 +21,8 @@ import org.bukkit.entity.Player;
 import org.jetbrains.annotations.NotNull;
 import org.jetbrains.annotations.Nullable;
 
+import java.util.List;
+
 public class LegacyWorldEditProvider implements WorldEditProvider {
 
     private final WorldEditPlugin worldEditPlugin;
@@ -27,6 +41,46 @@ public class LegacyWorldEditProvider implements WorldEditProvider {
         Location min = selection.getMinimumPoint();
         Location max = selection.getMaximumPoint();
 
-        return new RegionSelection(min, max);
+        return new RegionSelection(min, max, createShape(selection));
+    }
+
+    // Null for cuboids and shapes we don't support, those use the bounding box.
+    @Nullable
+    private RegionShape createShape(Selection selection) {
+        Region region;
+        try {
+            region = selection.getRegionSelector().getRegion();
+        } catch (IncompleteRegionException e) {
+            return null;
+        }
+
+        int minY = region.getMinimumPoint().getBlockY();
+        int maxY = region.getMaximumPoint().getBlockY();
+
+        if (region instanceof Polygonal2DRegion) {
+            List<BlockVector2D> points = ((Polygonal2DRegion) region).getPoints();
+
+            int[] xs = new int[points.size()];
+            int[] zs = new int[points.size()];
+            for (int i = 0; i < points.size(); i++) {
+                xs[i] = points.get(i).getBlockX();
+                zs[i] = points.get(i).getBlockZ();
+            }
+            return new PolygonShape(xs, zs, minY, maxY);
+        } else if (region instanceof CylinderRegion) {
+            CylinderRegion cylinder = (CylinderRegion) region;
+            Vector center = cylinder.getCenter();
+            Vector2D radius = cylinder.getRadius();
+
+            // WorldEdit reports the radius without the half block it adds for containment.
+            return new CylinderShape(center.getX(), center.getZ(), radius.getX() + 0.5, radius.getZ() + 0.5, minY, maxY);
+        } else if (region instanceof EllipsoidRegion) {
+            EllipsoidRegion ellipsoid = (EllipsoidRegion) region;
+            Vector center = ellipsoid.getCenter();
+            Vector radius = ellipsoid.getRadius();
+
+            return new SphereShape(center.getX(), center.getY(), center.getZ(), radius.getX() + 0.5, radius.getY() + 0.5, radius.getZ() + 0.5);
+        }
+        return null;
     }
 }
@@ -10,7 +10,9 @@ import net.milkbowl.vault.economy.Economy;
 import nl.aurorion.blockregen.commands.Commands;
 import nl.aurorion.blockregen.configuration.Files;
 import nl.aurorion.blockregen.listeners.BlockListener;
+import nl.aurorion.blockregen.listeners.ChunkListener;
 import nl.aurorion.blockregen.listeners.PlayerListener;
+import nl.aurorion.blockregen.listeners.WorldListener;
 import nl.aurorion.blockregen.particles.ParticleManager;
 import nl.aurorion.blockregen.particles.impl.FireWorks;
 import nl.aurorion.blockregen.particles.impl.FlameCrown;
@@ -21,8 +23,12 @@ import nl.aurorion.blockregen.system.event.EventManager;
 import nl.aurorion.blockregen.system.preset.PresetManager;
 import nl.aurorion.blockregen.system.regeneration.RegenerationManager;
 import nl.aurorion.blockregen.system.region.RegionManager;
+import nl.aurorion.blockregen.system.storage.ChunkStorage;
+import nl.aurorion.blockregen.system.storage.FlatFileStorage;
+import nl.aurorion.blockregen.system.storage.PersistenceExecutor;
+import nl.aurorion.blockregen.system.storage.SqliteStorage;
+import nl.aurorion.blockregen.system.storage.StorageBackend;
 import nl.aurorion.blockregen.version.NodeDataAdapter;
-import nl.aurorion.blockregen.version.NodeDataInstanceCreator;
 import nl.aurorion.blockregen.version.VersionManager;
 import nl.aurorion.blockregen.version.api.NodeData;
 import org.bukkit.Bukkit;
@@ -34,7 +40,9 @@ import org.bukkit.plugin.RegisteredServiceProvider;
 import org.bukkit.plugin.java.JavaPlugin;
 import org.jetbrains.annotations.NotNull;
 
+import java.io.IOException;
 import java.util.Random;
+import java.util.concurrent.TimeUnit;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 
@@ -91,6 +99,12 @@ public class BlockRegen extends JavaPlugin {
     @Getter
     private GsonHelper gsonHelper;
 
+    @Getter
+    private PersistenceExecutor persistenceExecutor;
+
+    @Getter
+    private StorageBackend storage;
+
     @Getter
     private ConsoleHandler consoleHandler;
 
@@ -153,8 +167,7 @@ public class BlockRegen extends JavaPlugin {
         versionManager.load();
 
         GsonBuilder gsonBuilder = new GsonBuilder()
-                .registerTypeHierarchyAdapter(NodeData.class, new NodeDataAdapter<>())
-                .registerTypeAdapter(NodeData.class, new NodeDataInstanceCreator(versionManager.getNodeProvider()))
+                .registerTypeHierarchyAdapter(NodeData.class, new NodeDataAdapter(versionManager.getCodecRegistry()))
                 .setPrettyPrinting();
 
         gsonHelper = new GsonHelper(gsonBuilder);
@@ -166,6 +179,9 @@ public class BlockRegen extends JavaPlugin {
         new FlameCrown().register();
         new WitchSpell().register();
 
+        persistenceExecutor = new PersistenceExecutor("BlockRegen Persistence");
+        storage = createStorage();
+
         presetManager = new PresetManager(this);
         regenerationManager = new RegenerationManager(this);
         regionManager = new RegionManager(this);
@@ -177,6 +193,9 @@ public class BlockRegen extends JavaPlugin {
 
         presetManager.loadAll();
         regionManager.load();
+        regenerationManager.getPlacementQueue().load();
+        regenerationManager.getPlacementQueue().start();
+        regenerationManager.startScheduler();
         regenerationManager.load();
 
         registerListeners();
@@ -241,6 +260,8 @@ public class BlockRegen extends JavaPlugin {
 
         regionManager.reload();
 
+        regenerationManager.getPlacementQueue().load();
+
         if (getConfig().getBoolean("Auto-Save.Enabled", false))
             regenerationManager.reloadAutoSave();
 
@@ -253,18 +274,81 @@ public class BlockRegen extends JavaPlugin {
         if (regenerationManager.getAutoSaveTask() != null)
             regenerationManager.getAutoSaveTask().stop();
 
+        regenerationManager.cancelRestore();
+        regionManager.cancelResets();
+        regionManager.cancelSnapshots();
+        regenerationManager.stopScheduler();
+
+        // Apply what's left before reverting.
+        regenerationManager.getPlacementQueue().stop();
+        regenerationManager.getPlacementQueue().flush();
+
         regenerationManager.revertAll(false);
-        regenerationManager.save(true);
+        // Don't hold up the shutdown forever if the disk is stuck, all the writes share one timeout.
+        long timeout = getConfig().getLong("Storage.Shutdown-Timeout", 30);
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(timeout);
+
+        regenerationManager.save(remaining(deadline), TimeUnit.NANOSECONDS);
+
+        regionManager.flush(remaining(deadline), TimeUnit.NANOSECONDS);
+
+        storage.close(remaining(deadline), TimeUnit.NANOSECONDS);
 
-        regionManager.save();
+        if (!persistenceExecutor.shutdown(remaining(deadline), TimeUnit.NANOSECONDS))
+            log.warning("Could not finish writing data within " + timeout + " seconds, some changes might be lost.");
 
         this.teardownLogger();
     }
 
+    private static long remaining(long deadline) {
+        return Math.max(0, deadline - System.nanoTime());
+    }
+
+    // Storage type can't be changed on reload, everything would have to be moved over.
+    private StorageBackend createStorage() {
+        String type = getConfig().getString("Storage.Type", "FILE");
+
+        if ("SQLITE".equalsIgnoreCase(type)) {
+            StorageBackend sqlite = new SqliteStorage(this);
+            try {
+                sqlite.open();
+                return sqlite;
+            } catch (IOException e) {
+                log.log(Level.SEVERE, "Could not open the SQLite database, falling back to file storage.", e);
+            }
+        } else if ("CHUNK".equalsIgnoreCase(type)) {
+            if (ChunkStorage.isSupported()) {
+                StorageBackend chunk = new ChunkStorage(this);
+                try {
+                    chunk.open();
+                    return chunk;
+                } catch (IOException e) {
+                    log.log(Level.SEVERE, "Could not open chunk storage, falling back to file storage.", e);
+                }
+            } else {
+                log.warning("Chunk storage needs 1.16.1 or newer, falling back to file storage.");
+            }
+        } else if (!"FILE".equalsIgnoreCase(type)) {
+            log.warning("Unknown storage type " + type + ", using file storage.");
+        }
+
+        StorageBackend file = new FlatFileStorage(this,
+                !"JSON".equalsIgnoreCase(getConfig().getString("Storage.Format", "BINARY")),
+                "REGION".equalsIgnoreCase(getConfig().getString("Storage.Split-By", "WORLD")));
+        try {
+            file.open();
+        } catch (IOException e) {
+            log.log(Level.SEVERE, "Could not open file storage.", e);
+        }
+        return file;
+    }
+
     private void registerListeners() {
         PluginManager pluginManager = this.getServer().getPluginManager();
         pluginManager.registerEvents(new BlockListener(this), this);
         pluginManager.registerEvents(new PlayerListener(this), this);
+        pluginManager.registerEvents(new ChunkListener(this), this);
+        pluginManager.registerEvents(new WorldListener(this), this);
     }
 
     public void checkDependencies(boolean reloadPresets) {
@@ -67,6 +67,18 @@ public enum Message {
     SELECT_FIRST("Select-First", "&7Set first position to &f%x%, %y%, %z%."),
     SELECT_SECOND("Select-Second", "&7Set second position to &f%x%, %y%, %z%."),
     SET_ALL("Set-All", "&7Region set to %s &7presets."),
+    SET_PRIORITY("Set-Priority", "&7Priority of region &f%region% &7set to &f%priority%&7."),
+    INVALID_PRIORITY("Invalid-Priority", "&c%priority% is not a valid priority, use a whole number."),
+    RESET_STARTED("Reset-Started", "&7Resetting region &f%region%&7..."),
+    RESET_PROGRESS("Reset-Progress", "&7Resetting region &f%region%&7... &f%progress%%"),
+    RESET_DONE("Reset-Done", "&7Reset &f%blocks% &7block(s) of region &f%region% &7in &f%time%s&7."),
+    RESET_RUNNING("Reset-Running", "&cRegion %region% is being reset already."),
+    NO_TEMPLATE("No-Template", "&cRegion %region% has no snapshot or presets to reset it with."),
+    SNAPSHOT_STARTED("Snapshot-Started", "&7Capturing region &f%region%&7..."),
+    SNAPSHOT_PROGRESS("Snapshot-Progress", "&7Capturing region &f%region%&7... &f%progress%%"),
+    SNAPSHOT_DONE("Snapshot-Done", "&7Captured &f%chunks% &7chunk(s) of region &f%region% &7in &f%time%s&7. Resets use the snapshot now."),
+    SNAPSHOT_RUNNING("Snapshot-Running", "&cRegion %region% is being captured already."),
+    SNAPSHOT_FAILED("Snapshot-Failed", "&cCould not capture region %region%, see the console."),
     INVALID_PRESET("Invalid-Preset", "&cPreset %preset% does not exist."),
 
     HAS_PRESET_ALREADY("Has-Preset-Already", "&7Region &f%region% &7has preset &f%preset% &7already."),
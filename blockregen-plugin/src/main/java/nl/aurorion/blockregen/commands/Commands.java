@@ -7,9 +7,14 @@ import nl.aurorion.blockregen.Message;
 import nl.aurorion.blockregen.StringUtil;
 import nl.aurorion.blockregen.system.event.struct.PresetEvent;
 import nl.aurorion.blockregen.system.preset.struct.BlockPreset;
+import nl.aurorion.blockregen.system.regeneration.PlacementQueue;
+import nl.aurorion.blockregen.system.regeneration.RegenerationManager;
 import nl.aurorion.blockregen.system.regeneration.struct.RegenerationProcess;
+import nl.aurorion.blockregen.system.region.reset.RegionTemplate;
 import nl.aurorion.blockregen.system.region.struct.RegenerationRegion;
 import nl.aurorion.blockregen.system.region.struct.RegionSelection;
+import org.bukkit.Bukkit;
+import org.bukkit.World;
 import org.bukkit.command.Command;
 import org.bukkit.command.CommandExecutor;
 import org.bukkit.command.CommandSender;
@@ -19,6 +24,7 @@ import org.bukkit.inventory.meta.ItemMeta;
 import org.jetbrains.annotations.NotNull;
 
 import java.util.Arrays;
+import java.util.Collection;
 import java.util.HashSet;
 import java.util.Iterator;
 import java.util.Set;
@@ -36,12 +42,16 @@ public class Commands implements CommandExecutor {
             + "\n&3/%label% regions &8- &7List regions."
             + "\n&3/%label% region set <region> &8- &7Create a region from your selection."
             + "\n&3/%label% region all <region> &8- &7Switch 'all presets' mode."
+            + "\n&3/%label% region priority <region> <priority> &8- &7Set which region wins where regions overlap."
+            + "\n&3/%label% region snapshot <region> &8- &7Capture the region's blocks to reset it to."
+            + "\n&3/%label% region reset <region> &8- &7Rebuild every block of the region from its snapshot or presets."
             + "\n&3/%label% region add <region> <preset> &8- &7Add a preset to the region."
             + "\n&3/%label% region remove <region> <preset> &8- &7Remove a preset from region."
             + "\n&3/%label% region clear <region> &8- &7Clear all presets from the region."
             + "\n&3/%label% region copy <region-from> <region-to> &8- &7Copy configured presets from one region to another."
             + "\n&3/%label% region delete <region> &8- &7Delete a region."
             + "\n&3/%label% regen (-p <preset>) (-r <region>) (-w <world>) &8- &7Regenerate presets based on argument switches."
+            + "\n&3/%label% status &8- &7Show regeneration queue statistics."
             + "\n&3/%label% events &8- &7Event management."
             + "\n&3/%label% discord &8- &7BlockRegen discord invite. Ask for support there.";
 
@@ -294,6 +304,103 @@ public class Commands implements CommandExecutor {
                         player.sendMessage(StringUtil.color(String.format(Message.SET_ALL.get(player), region.setAll(!region.isAll()) ? "&aall" : "&cnot all")));
                         return false;
                     }
+                    case "snapshot": {
+                        if (args.length > 3) {
+                            sender.sendMessage(Message.TOO_MANY_ARGS.get(player)
+                                    .replace("%help%", String.format("/%s region snapshot <name>", label)));
+                            return false;
+                        } else if (args.length < 3) {
+                            sender.sendMessage(Message.NOT_ENOUGH_ARGS.get(player)
+                                    .replace("%help%", String.format("/%s region snapshot <name>", label)));
+                            return false;
+                        }
+
+                        RegenerationRegion region = plugin.getRegionManager().getRegion(args[2]);
+
+                        if (region == null) {
+                            Message.UNKNOWN_REGION.send(player);
+                            return false;
+                        }
+
+                        if (plugin.getRegionManager().snapshotRegion(region, player) == null) {
+                            player.sendMessage(Message.SNAPSHOT_RUNNING.get(player)
+                                    .replace("%region%", region.getName()));
+                            return false;
+                        }
+
+                        player.sendMessage(Message.SNAPSHOT_STARTED.get(player)
+                                .replace("%region%", region.getName()));
+                        return false;
+                    }
+                    case "reset": {
+                        if (args.length > 3) {
+                            sender.sendMessage(Message.TOO_MANY_ARGS.get(player)
+                                    .replace("%help%", String.format("/%s region reset <name>", label)));
+                            return false;
+                        } else if (args.length < 3) {
+                            sender.sendMessage(Message.NOT_ENOUGH_ARGS.get(player)
+                                    .replace("%help%", String.format("/%s region reset <name>", label)));
+                            return false;
+                        }
+
+                        RegenerationRegion region = plugin.getRegionManager().getRegion(args[2]);
+
+                        if (region == null) {
+                            Message.UNKNOWN_REGION.send(player);
+                            return false;
+                        }
+
+                        RegionTemplate template = plugin.getRegionManager().getTemplate(region);
+
+                        if (template == null) {
+                            player.sendMessage(Message.NO_TEMPLATE.get(player)
+                                    .replace("%region%", region.getName()));
+                            return false;
+                        }
+
+                        if (plugin.getRegionManager().resetRegion(region, template, player) == null) {
+                            player.sendMessage(Message.RESET_RUNNING.get(player)
+                                    .replace("%region%", region.getName()));
+                            return false;
+                        }
+
+                        player.sendMessage(Message.RESET_STARTED.get(player)
+                                .replace("%region%", region.getName()));
+                        return false;
+                    }
+                    case "priority": {
+                        if (args.length > 4) {
+                            sender.sendMessage(Message.TOO_MANY_ARGS.get(player)
+                                    .replace("%help%", String.format("/%s region priority <name> <priority>", label)));
+                            return false;
+                        } else if (args.length < 4) {
+                            sender.sendMessage(Message.NOT_ENOUGH_ARGS.get(player)
+                                    .replace("%help%", String.format("/%s region priority <name> <priority>", label)));
+                            return false;
+                        }
+
+                        RegenerationRegion region = plugin.getRegionManager().getRegion(args[2]);
+
+                        if (region == null) {
+                            Message.UNKNOWN_REGION.send(player);
+                            return false;
+                        }
+
+                        int priority;
+                        try {
+                            priority = Integer.parseInt(args[3]);
+                        } catch (NumberFormatException e) {
+                            player.sendMessage(Message.INVALID_PRIORITY.get(player)
+                                    .replace("%priority%", args[3]));
+                            return false;
+                        }
+
+                        plugin.getRegionManager().setPriority(region, priority);
+                        player.sendMessage(Message.SET_PRIORITY.get(player)
+                                .replace("%region%", region.getName())
+                                .replace("%priority%", String.valueOf(priority)));
+                        return false;
+                    }
                     case "add": {
                         if (args.length > 4) {
                             sender.sendMessage(Message.TOO_MANY_ARGS.get(player)
@@ -459,12 +566,30 @@ public class Commands implements CommandExecutor {
                     }
                 }
 
+                RegenerationManager regenerationManager = plugin.getRegenerationManager();
+
+                if (worldName != null) {
+                    World world = Bukkit.getWorld(worldName);
+                    if (world != null)
+                        worldName = world.getName();
+                }
+
+                // Start from the smallest index and filter the rest.
+                Collection<RegenerationProcess> candidates = regenerationManager.getCache();
+
+                if (region != null)
+                    candidates = smaller(candidates, regenerationManager.getProcessesInRegion(region.getName()));
+                if (preset != null)
+                    candidates = smaller(candidates, regenerationManager.getProcessesByPreset(preset.getName()));
+                if (worldName != null)
+                    candidates = smaller(candidates, regenerationManager.getProcessesInWorld(worldName));
+
                 Set<RegenerationProcess> toRegen = new HashSet<>();
 
-                for (RegenerationProcess process : plugin.getRegenerationManager().getCache()) {
-                    if ((preset == null || preset.equals(process.getPreset())) &&
-                            (region == null || region.getName().equalsIgnoreCase(process.getRegionName())) &&
-                            (worldName == null || worldName.equalsIgnoreCase(process.getWorldName()))) {
+                for (RegenerationProcess process : candidates) {
+                    if ((preset == null || preset.getName().equals(process.getPresetName())) &&
+                            (region == null || region.getName().equals(process.getRegionName())) &&
+                            (worldName == null || worldName.equals(process.getWorldName()))) {
                         toRegen.add(process);
                     }
                 }
@@ -475,6 +600,27 @@ public class Commands implements CommandExecutor {
                         .replace("%count%", String.valueOf(toRegen.size())));
                 break;
             }
+            case "status": {
+                if (!sender.hasPermission("blockregen.admin")) {
+                    Message.NO_PERM.send(sender);
+                    return false;
+                }
+
+                RegenerationManager regenerationManager = plugin.getRegenerationManager();
+                PlacementQueue placementQueue = regenerationManager.getPlacementQueue();
+
+                sender.sendMessage(StringUtil.color("&8&m    &3 BlockRegen Status &8&m    &r"
+                        + "\n&7Running processes: &f" + regenerationManager.getProcessCount()
+                        + "\n&7Scheduled timers: &f" + regenerationManager.getScheduler().getPending()
+                        + " &8(&f" + regenerationManager.getScheduler().getLastDue() + " &7due last tick&8)"
+                        + "\n&7Awaiting regeneration: &f" + placementQueue.getDueDepth()
+                        + "\n&7Waiting for chunk load: &f" + regenerationManager.getParkedCount()
+                        + "\n&7Queued placements: &f" + placementQueue.getQueueDepth()
+                        + "\n&7Placed per tick: &f" + placementQueue.getLastDrained()
+                        + " &8(&7avg &f" + String.format("%.1f", placementQueue.getDrainRate()) + "&8)"
+                        + "\n&7Last save: &f" + formatLastSave(regenerationManager)));
+                break;
+            }
             case "debug":
                 if (!(sender instanceof Player)) {
                     sender.sendMessage(Message.ONLY_PLAYERS.get());
@@ -590,4 +736,19 @@ public class Commands implements CommandExecutor {
 
         return false;
     }
+
+    private String formatLastSave(RegenerationManager regenerationManager) {
+        if (regenerationManager.getLastSaveTime() < 0)
+            return "never";
+
+        long ago = (System.currentTimeMillis() - regenerationManager.getLastSaveTime()) / 1000;
+        String size = regenerationManager.getLastSaveSize() < 0 ? "" : String.format(", %.1f kB", regenerationManager.getLastSaveSize() / 1024.0);
+
+        return String.format("%ds ago &8(&f%d &7process(es) in &f%dms&7%s&8)",
+                ago, regenerationManager.getLastSaveCount(), regenerationManager.getLastSaveDuration(), size);
+    }
+
+    private <T> Collection<T> smaller(Collection<T> a, Collection<T> b) {
+        return b.size() < a.size() ? b : a;
+    }
 }
\ No newline at end of file
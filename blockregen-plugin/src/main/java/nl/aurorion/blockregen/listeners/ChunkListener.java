@@ -0,0 +1,31 @@
+package nl.aurorion.blockregen.listeners;
+
+import nl.aurorion.blockregen.BlockRegen;
+import org.bukkit.Chunk;
+import org.bukkit.event.EventHandler;
+import org.bukkit.event.EventPriority;
+import org.bukkit.event.Listener;
+import org.bukkit.event.world.ChunkLoadEvent;
+import org.bukkit.event.world.ChunkUnloadEvent;
+
+public class ChunkListener implements Listener {
+
+    private final BlockRegen plugin;
+
+    public ChunkListener(BlockRegen instance) {
+        this.plugin = instance;
+    }
+
+    // Regenerate everything that came due while the chunk was unloaded.
+    @EventHandler(priority = EventPriority.MONITOR)
+    public void onChunkLoad(ChunkLoadEvent event) {
+        Chunk chunk = event.getChunk();
+        plugin.getRegenerationManager().loadChunk(chunk);
+        plugin.getRegenerationManager().unparkChunk(chunk.getWorld().getName(), chunk.getX(), chunk.getZ());
+    }
+
+    @EventHandler(priority = EventPriority.MONITOR)
+    public void onChunkUnload(ChunkUnloadEvent event) {
+        plugin.getRegenerationManager().unloadChunk(event.getChunk());
+    }
+}
@@ -0,0 +1,29 @@
+package nl.aurorion.blockregen.listeners;
+
+import nl.aurorion.blockregen.BlockRegen;
+import org.bukkit.event.EventHandler;
+import org.bukkit.event.EventPriority;
+import org.bukkit.event.Listener;
+import org.bukkit.event.world.WorldLoadEvent;
+import org.bukkit.event.world.WorldSaveEvent;
+
+public class WorldListener implements Listener {
+
+    private final BlockRegen plugin;
+
+    public WorldListener(BlockRegen instance) {
+        this.plugin = instance;
+    }
+
+    // Load processes of worlds that weren't loaded on startup.
+    @EventHandler(priority = EventPriority.MONITOR)
+    public void onWorldLoad(WorldLoadEvent event) {
+        plugin.getRegenerationManager().loadPendingWorld(event.getWorld().getName());
+    }
+
+    // Chunks are saved right after, processes stored in them have to be written first.
+    @EventHandler(priority = EventPriority.MONITOR)
+    public void onWorldSave(WorldSaveEvent event) {
+        plugin.getRegenerationManager().saveChunks(event.getWorld().getName());
+    }
+}
@@ -52,6 +52,16 @@ public class AutoSaveTask implements Runnable {
     @Override
     public void run() {
         plugin.getRegenerationManager().save();
-        plugin.getRegionManager().save();
+
+        if (!plugin.isEnabled())
+            return;
+
+        // Regions rarely change, skip the write when nothing did.
+        // Region edits are saved on their own, this catches changes to presets and flags.
+        // Regions are only safe to read on the main thread.
+        Bukkit.getScheduler().runTask(plugin, () -> {
+            if (plugin.getRegionManager().hasChanges())
+                plugin.getRegionManager().save();
+        });
     }
 }
\ No newline at end of file
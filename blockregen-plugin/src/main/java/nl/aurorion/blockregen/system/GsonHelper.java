@@ -1,14 +1,19 @@
 package nl.aurorion.blockregen.system;
 
-import com.google.common.base.Strings;
 import com.google.gson.Gson;
 import com.google.gson.GsonBuilder;
 import com.google.gson.reflect.TypeToken;
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonToken;
+import com.google.gson.stream.JsonWriter;
+import lombok.Getter;
 import lombok.extern.java.Log;
+import nl.aurorion.blockregen.system.storage.PersistenceExecutor;
 import org.jetbrains.annotations.NotNull;
 import org.jetbrains.annotations.Nullable;
 
 import java.io.IOException;
+import java.io.Reader;
 import java.lang.reflect.Type;
 import java.nio.ByteBuffer;
 import java.nio.channels.AsynchronousFileChannel;
@@ -18,9 +23,11 @@ import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.Paths;
 import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
 import java.util.List;
 import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.CompletionException;
+import java.util.function.Consumer;
 
 /**
  * Gson (json) save and load helper class.
@@ -32,6 +39,7 @@ import java.util.concurrent.CompletionException;
 @Log
 public class GsonHelper {
 
+    @Getter
     private final Gson gson;
 
     public GsonHelper(GsonBuilder gsonBuilder) {
@@ -61,7 +69,10 @@ public class GsonHelper {
 
     /**
      * Asynchronously read ByteBuffer from a file.
+     *
+     * @deprecated Holds the whole file in memory, use {@link #readList(Path, Class, Consumer)} for large files.
      */
+    @Deprecated
     @NotNull
     public CompletableFuture<ByteBuffer> read(@NotNull final Path path) {
 
@@ -114,18 +125,56 @@ public class GsonHelper {
         if (!Files.exists(path))
             return null;
 
-        String input;
-        try {
-            input = String.join("", Files.readAllLines(path));
+        // Gson parses straight from the reader, the file is never held as a whole.
+        try (Reader reader = Files.newBufferedReader(path, StandardCharsets.UTF_8)) {
+            return gson.fromJson(reader, type);
         } catch (IOException e) {
             e.printStackTrace();
             return null;
         }
+    }
 
-        if (Strings.isNullOrEmpty(input))
-            return null;
+    /**
+     * Stream a json array from a file, parsing one element at a time.
+     *
+     * @return Number of elements read.
+     */
+    public <T> int readList(@NotNull Path path, @NotNull Class<T> innerClazz, @NotNull Consumer<T> consumer) throws IOException {
+        if (!Files.exists(path))
+            return 0;
+
+        int count = 0;
+
+        try (JsonReader reader = new JsonReader(Files.newBufferedReader(path, StandardCharsets.UTF_8))) {
+            // Empty file, nothing saved yet.
+            if (reader.peek() == JsonToken.END_DOCUMENT)
+                return 0;
+
+            reader.beginArray();
+            while (reader.hasNext()) {
+                T element = gson.fromJson(reader, innerClazz);
+
+                if (element != null) {
+                    consumer.accept(element);
+                    count++;
+                }
+            }
+            reader.endArray();
+        }
+        return count;
+    }
 
-        return gson.fromJson(input, type);
+    /**
+     * Stream elements into a json array, serializing one at a time.
+     */
+    public <T> void writeList(@NotNull Path path, @NotNull Iterable<T> elements) throws IOException {
+        try (JsonWriter writer = gson.newJsonWriter(Files.newBufferedWriter(path, StandardCharsets.UTF_8))) {
+            writer.beginArray();
+            for (T element : elements) {
+                gson.toJson(element, element.getClass(), writer);
+            }
+            writer.endArray();
+        }
     }
 
     /**
@@ -138,40 +187,41 @@ public class GsonHelper {
         Path path = Paths.get(dataPath);
 
         if (!Files.exists(path))
-            return new CompletableFuture<>();
+            return CompletableFuture.completedFuture(null);
 
-        final Type type = mapList(innerClazz);
-
-        return read(path).thenApplyAsync(buffer -> {
-            String output = new String(buffer.array(), StandardCharsets.UTF_8).trim();
-
-            if (Strings.isNullOrEmpty(output))
-                return null;
-
-            return gson.fromJson(output, type);
+        return CompletableFuture.supplyAsync(() -> {
+            List<T> list = new ArrayList<>();
+            try {
+                readList(path, innerClazz, list::add);
+            } catch (IOException e) {
+                throw new CompletionException(e);
+            }
+            return list.isEmpty() ? null : list;
         });
     }
 
     /**
-     * Asynchronously save data to json.
+     * Asynchronously save data to json on the persistence thread.
+     * A save of the same file that didn't start yet is replaced by this one.
      *
-     * @return CompletableFuture with the number of bytes written
+     * @return CompletableFuture completed once the data is written.
      */
     @NotNull
-    public <T> CompletableFuture<Void> save(@NotNull final T input, @NotNull final String dataPath) {
+    public <T> CompletableFuture<Void> save(@NotNull final T input, @NotNull final String dataPath, @NotNull PersistenceExecutor executor) {
 
         Path path = Paths.get(dataPath);
 
         final Type type = map(input.getClass());
 
-        return CompletableFuture.runAsync(() -> {
-            String jsonString = gson.toJson(input, type).trim();
-
-            try {
-                Files.write(path, jsonString.getBytes(StandardCharsets.UTF_8), StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE);
-            } catch (IOException e) {
-                throw new RuntimeException(e);
+        return executor.submit(path.toAbsolutePath().toString(), () -> PersistenceExecutor.writeAtomically(path, temp -> {
+            if (input instanceof Iterable) {
+                writeList(temp, (Iterable<?>) input);
+            } else {
+                // Written straight to the file without building the json string first.
+                try (JsonWriter writer = gson.newJsonWriter(Files.newBufferedWriter(temp, StandardCharsets.UTF_8))) {
+                    gson.toJson(input, type, writer);
+                }
             }
-        });
+        }));
     }
 }
\ No newline at end of file
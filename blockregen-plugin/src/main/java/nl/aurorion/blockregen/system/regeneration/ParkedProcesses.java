@@ -0,0 +1,109 @@
+package nl.aurorion.blockregen.system.regeneration;
+
+import nl.aurorion.blockregen.system.regeneration.struct.RegenerationProcess;
+import nl.aurorion.blockregen.system.regeneration.struct.SimpleLocation;
+import nl.aurorion.blockregen.util.LocationUtil;
+import nl.aurorion.blockregen.util.LongObjectMap;
+import org.jetbrains.annotations.NotNull;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Predicate;
+
+/**
+ * Processes that came due while their chunk was unloaded, bucketed per chunk until it loads again.
+ * Main thread only.
+ */
+public class ParkedProcesses {
+
+    private final Map<String, LongObjectMap<List<RegenerationProcess>>> buckets = new HashMap<>();
+
+    private int size = 0;
+
+    public void park(@NotNull RegenerationProcess process) {
+        SimpleLocation location = process.getLocation();
+
+        LongObjectMap<List<RegenerationProcess>> worldBuckets = buckets.computeIfAbsent(location.getWorld(), k -> new LongObjectMap<>());
+
+        long key = LocationUtil.chunkKey(location.getBlockX() >> 4, location.getBlockZ() >> 4);
+
+        List<RegenerationProcess> bucket = worldBuckets.get(key);
+
+        if (bucket == null) {
+            bucket = new ArrayList<>();
+            worldBuckets.put(key, bucket);
+        }
+
+        bucket.add(process);
+        size++;
+    }
+
+    /**
+     * Remove and return all processes parked in the chunk.
+     */
+    @NotNull
+    public List<RegenerationProcess> unpark(@NotNull String worldName, int chunkX, int chunkZ) {
+        LongObjectMap<List<RegenerationProcess>> worldBuckets = buckets.get(worldName);
+
+        if (worldBuckets == null)
+            return Collections.emptyList();
+
+        List<RegenerationProcess> bucket = worldBuckets.remove(LocationUtil.chunkKey(chunkX, chunkZ));
+
+        if (bucket == null)
+            return Collections.emptyList();
+
+        if (worldBuckets.isEmpty())
+            buckets.remove(worldName);
+
+        size -= bucket.size();
+        return bucket;
+    }
+
+    /**
+     * Remove and return all processes parked in the world matching the filter.
+     */
+    @NotNull
+    public List<RegenerationProcess> remove(@NotNull String worldName, @NotNull Predicate<RegenerationProcess> filter) {
+        LongObjectMap<List<RegenerationProcess>> worldBuckets = buckets.get(worldName);
+
+        if (worldBuckets == null)
+            return Collections.emptyList();
+
+        List<RegenerationProcess> removed = new ArrayList<>();
+
+        for (Object element : worldBuckets.toArray()) {
+            @SuppressWarnings("unchecked")
+            List<RegenerationProcess> bucket = (List<RegenerationProcess>) element;
+
+            // All processes of a bucket share the chunk.
+            SimpleLocation location = bucket.get(0).getLocation();
+
+            for (Iterator<RegenerationProcess> it = bucket.iterator(); it.hasNext(); ) {
+                RegenerationProcess process = it.next();
+
+                if (filter.test(process)) {
+                    it.remove();
+                    removed.add(process);
+                }
+            }
+
+            if (bucket.isEmpty())
+                worldBuckets.remove(LocationUtil.chunkKey(location.getBlockX() >> 4, location.getBlockZ() >> 4));
+        }
+
+        if (worldBuckets.isEmpty())
+            buckets.remove(worldName);
+
+        size -= removed.size();
+        return removed;
+    }
+
+    public int size() {
+        return size;
+    }
+}
@@ -0,0 +1,219 @@
+package nl.aurorion.blockregen.system.regeneration;
+
+import lombok.Getter;
+import lombok.extern.java.Log;
+import nl.aurorion.blockregen.BlockRegen;
+import nl.aurorion.blockregen.system.regeneration.struct.RegenerationProcess;
+import org.bukkit.Bukkit;
+import org.bukkit.scheduler.BukkitTask;
+import org.jetbrains.annotations.NotNull;
+
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Predicate;
+import java.util.logging.Level;
+
+/**
+ * Main thread pipeline for regenerations and block placements.
+ * <p>
+ * Both can be submitted from any thread. Once per tick, regeneration events are fired for processes that came due,
+ * the non-cancelled ones are queued for placement and placements are applied. Events get up to half of the per-tick time budget,
+ * placements the rest. Whatever doesn't fit into the budget is carried over to the next tick.
+ */
+@Log
+public class PlacementQueue implements Runnable {
+
+    private final BlockRegen plugin;
+
+    private final Queue<Placement> queue = new ConcurrentLinkedQueue<>();
+
+    // Processes waiting for their regeneration event.
+    private final Queue<RegenerationProcess> due = new ConcurrentLinkedQueue<>();
+
+    // ConcurrentLinkedQueue#size() is O(n), keep track separately.
+    private final AtomicInteger depth = new AtomicInteger();
+    private final AtomicInteger dueDepth = new AtomicInteger();
+
+    private int maxBlocks;
+
+    private long maxNanos;
+
+    private BukkitTask task;
+
+    /**
+     * Number of placements applied on the last tick.
+     */
+    @Getter
+    private volatile int lastDrained = 0;
+
+    /**
+     * Moving average of placements applied per tick.
+     */
+    @Getter
+    private volatile double drainRate = 0;
+
+    public PlacementQueue(BlockRegen plugin) {
+        this.plugin = plugin;
+    }
+
+    public void load() {
+        this.maxBlocks = Math.max(1, plugin.getConfig().getInt("Placement.Max-Blocks-Per-Tick", 500));
+        this.maxNanos = TimeUnit.MILLISECONDS.toNanos(Math.max(1, plugin.getConfig().getInt("Placement.Max-Time-Per-Tick", 10)));
+    }
+
+    public void start() {
+        if (task != null)
+            return;
+
+        this.task = Bukkit.getScheduler().runTaskTimer(plugin, this, 1L, 1L);
+    }
+
+    public void stop() {
+        if (task == null)
+            return;
+
+        task.cancel();
+        this.task = null;
+    }
+
+    /**
+     * Queue a placement to be applied on the main thread.
+     */
+    public void submit(@NotNull Placement placement) {
+        queue.add(placement);
+        depth.incrementAndGet();
+    }
+
+    /**
+     * Queue a process to fire its regeneration event with the next pass.
+     */
+    public void submitRegeneration(@NotNull RegenerationProcess process) {
+        due.add(process);
+        dueDepth.incrementAndGet();
+    }
+
+    /**
+     * Take out all queued processes matching the filter, both waiting for their event and for placement.
+     * Has to be called from the main thread, the only one polling the queues.
+     *
+     * @return Removed processes.
+     */
+    @NotNull
+    public List<RegenerationProcess> remove(@NotNull Predicate<RegenerationProcess> filter) {
+        List<RegenerationProcess> removed = new ArrayList<>();
+
+        for (Iterator<RegenerationProcess> it = due.iterator(); it.hasNext(); ) {
+            RegenerationProcess process = it.next();
+
+            if (filter.test(process)) {
+                it.remove();
+                dueDepth.decrementAndGet();
+                removed.add(process);
+            }
+        }
+
+        for (Iterator<Placement> it = queue.iterator(); it.hasNext(); ) {
+            Placement placement = it.next();
+
+            if (placement instanceof RegenerationProcess && filter.test((RegenerationProcess) placement)) {
+                it.remove();
+                depth.decrementAndGet();
+                removed.add((RegenerationProcess) placement);
+            }
+        }
+        return removed;
+    }
+
+    /**
+     * Apply everything that's queued right away, ignoring the budget. Has to be called from the main thread.
+     */
+    public void flush() {
+        completeDue(Long.MAX_VALUE);
+
+        int count = drain(Integer.MAX_VALUE, Long.MAX_VALUE);
+
+        if (count > 0)
+            log.fine("Flushed " + count + " queued placement(s).");
+    }
+
+    @Override
+    public void run() {
+        long start = System.nanoTime();
+
+        completeDue(maxNanos / 2);
+
+        int drained = drain(maxBlocks, maxNanos - (System.nanoTime() - start));
+
+        this.lastDrained = drained;
+        this.drainRate = drainRate * 0.95 + drained * 0.05;
+    }
+
+    // Fire events for due processes within the time budget, placements of the non-cancelled ones end up in the queue.
+    private void completeDue(long nanos) {
+        long start = System.nanoTime();
+
+        // Only take what's due now, processes submitted meanwhile wait for the next pass.
+        for (int i = dueDepth.get(); i > 0 && System.nanoTime() - start < nanos; i--) {
+            RegenerationProcess process = due.poll();
+
+            if (process == null)
+                break;
+
+            dueDepth.decrementAndGet();
+
+            try {
+                process.completeRegeneration();
+            } catch (Exception e) {
+                log.log(Level.SEVERE, "Could not regenerate process " + process, e);
+            }
+        }
+    }
+
+    private int drain(int limit, long nanos) {
+        long start = System.nanoTime();
+
+        int count = 0;
+        while (count < limit && System.nanoTime() - start < nanos) {
+            Placement placement = queue.poll();
+
+            if (placement == null)
+                break;
+
+            depth.decrementAndGet();
+            count++;
+
+            try {
+                placement.place();
+            } catch (Exception e) {
+                log.log(Level.SEVERE, "Could not apply a block placement", e);
+            }
+        }
+        return count;
+    }
+
+    /**
+     * @return Number of placements waiting to be applied.
+     */
+    public int getQueueDepth() {
+        return depth.get();
+    }
+
+    /**
+     * @return Number of processes waiting for their regeneration event.
+     */
+    public int getDueDepth() {
+        return dueDepth.get();
+    }
+
+    /**
+     * A block placement, applied on the main thread.
+     */
+    public interface Placement {
+        void place();
+    }
+}
@@ -1,32 +1,107 @@
 package nl.aurorion.blockregen.system.regeneration;
 
+import com.google.common.collect.Interner;
+import com.google.common.collect.Interners;
+import com.google.common.collect.Iterators;
 import lombok.Getter;
 import lombok.extern.java.Log;
 import nl.aurorion.blockregen.BlockRegen;
 import nl.aurorion.blockregen.system.AutoSaveTask;
 import nl.aurorion.blockregen.system.preset.struct.BlockPreset;
+import nl.aurorion.blockregen.system.regeneration.scheduler.RegenerationScheduler;
+import nl.aurorion.blockregen.system.regeneration.scheduler.TimingWheelScheduler;
 import nl.aurorion.blockregen.system.regeneration.struct.RegenerationProcess;
+import nl.aurorion.blockregen.system.regeneration.struct.SimpleLocation;
+import nl.aurorion.blockregen.system.region.struct.RegenerationRegion;
+import nl.aurorion.blockregen.system.storage.ChunkStorage;
+import nl.aurorion.blockregen.system.storage.StorageBackend;
+import nl.aurorion.blockregen.util.LocationUtil;
+import nl.aurorion.blockregen.util.ConcurrentLongObjectMap;
 import nl.aurorion.blockregen.version.api.NodeData;
-import org.bukkit.Location;
+import org.bukkit.Bukkit;
+import org.bukkit.Chunk;
+import org.bukkit.World;
 import org.bukkit.block.Block;
 import org.bukkit.entity.Player;
+import org.bukkit.scheduler.BukkitTask;
 import org.jetbrains.annotations.NotNull;
 import org.jetbrains.annotations.Nullable;
 
+import java.io.IOException;
 import java.util.*;
 import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Consumer;
+import java.util.function.Predicate;
+import java.util.logging.Level;
 
 @Log
 public class RegenerationManager {
 
     private final BlockRegen plugin;
 
-    private final List<RegenerationProcess> cache = new ArrayList<>();
+    // Running processes per world, keyed by packed block coordinates.
+    // Accessed from both the main thread and async regeneration tasks.
+    private final Map<String, ConcurrentLongObjectMap<RegenerationProcess>> cache = new ConcurrentHashMap<>();
+
+    private final Collection<RegenerationProcess> cacheView = new CacheView();
+
+    // Secondary indexes, updated together with the cache.
+    private final Map<String, Set<RegenerationProcess>> regionIndex = new ConcurrentHashMap<>();
+    private final Map<String, Set<RegenerationProcess>> presetIndex = new ConcurrentHashMap<>();
+
+    // Rules out most lookups for blocks without a process before touching the cache.
+    private final SectionFilter filter = new SectionFilter();
 
     @Getter
     private AutoSaveTask autoSaveTask;
 
-    private boolean retry = false;
+    @Getter
+    private final RegenerationScheduler scheduler = new TimingWheelScheduler();
+
+    // Drives the scheduler, the only Bukkit task for all regeneration timers.
+    private BukkitTask schedulerTask;
+
+    @Getter
+    private final PlacementQueue placementQueue;
+
+    // Due processes waiting for their chunk to load.
+    private final ParkedProcesses parked = new ParkedProcesses();
+
+    // Most broken blocks carry the same data, share equal instances between processes.
+    private final Interner<NodeData> nodeDataInterner = Interners.newWeakInterner();
+
+    // Bumped on every recorded change, compared against the value at the last save.
+    private final AtomicLong changes = new AtomicLong();
+    private volatile long savedChanges = 0;
+
+    // Worlds with changes since their last full save.
+    private final Set<String> dirtyWorlds = ConcurrentHashMap.newKeySet();
+
+    // Last full save, for the status command.
+    @Getter
+    private volatile long lastSaveTime = -1;
+    @Getter
+    private volatile long lastSaveDuration = -1;
+    @Getter
+    private volatile int lastSaveCount = 0;
+    @Getter
+    private volatile long lastSaveSize = -1;
+
+    // Worlds with saved processes that weren't loaded yet.
+    private final Set<String> pendingWorlds = ConcurrentHashMap.newKeySet();
+
+    private final ThreadPoolExecutor loadExecutor;
+
+    private RestoreTask restoreTask;
 
     private final Set<UUID> bypass = new HashSet<>();
 
@@ -34,6 +109,17 @@ public class RegenerationManager {
 
     public RegenerationManager(BlockRegen plugin) {
         this.plugin = plugin;
+        this.placementQueue = new PlacementQueue(plugin);
+
+        // Worlds are parsed in parallel, the threads stop once idle.
+        int threads = Math.max(1, Math.min(4, Runtime.getRuntime().availableProcessors()));
+        AtomicInteger threadCount = new AtomicInteger();
+        this.loadExecutor = new ThreadPoolExecutor(threads, threads, 30L, TimeUnit.SECONDS, new LinkedBlockingQueue<>(), runnable -> {
+            Thread thread = new Thread(runnable, "BlockRegen Loader #" + threadCount.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+        loadExecutor.allowCoreThreadTimeOut(true);
     }
 
     // --- Bypass
@@ -80,8 +166,6 @@ public class RegenerationManager {
         if (process == null)
             return null;
 
-        process.setWorldName(block.getWorld().getName());
-
         if (regionName.length > 0)
             process.setRegionName(regionName[0]);
 
@@ -97,48 +181,79 @@ public class RegenerationManager {
         NodeData nodeData = plugin.getVersionManager().createNodeData();
         nodeData.load(block);
 
-        return block == null || preset == null ? null : new RegenerationProcess(block, nodeData, preset);
+        return block == null || preset == null ? null : new RegenerationProcess(block, nodeDataInterner.intern(nodeData), preset);
     }
 
     /**
      * Register the process as running.
      */
     public void registerProcess(@NotNull RegenerationProcess process) {
-        if (cache.contains(process)) {
-            log.fine(String.format("Cache already contains process for location %s", process.getLocation()));
-            return;
+        if (register(process)) {
+            plugin.getStorage().recordAdd(process);
+            changed(process.getWorldName());
+        }
+    }
+
+    /**
+     * Record a change in timing of a registered process.
+     */
+    public void processUpdated(@NotNull RegenerationProcess process) {
+        plugin.getStorage().recordAdd(process);
+        changed(process.getWorldName());
+    }
+
+    private void changed(String worldName) {
+        changes.incrementAndGet();
+        dirtyWorlds.add(worldName);
+    }
+
+    // Add the process to the cache and indexes without recording it to storage.
+    private boolean register(@NotNull RegenerationProcess process) {
+        SimpleLocation location = process.getLocation();
+
+        ConcurrentLongObjectMap<RegenerationProcess> worldCache = cache.computeIfAbsent(location.getWorld(), k -> new ConcurrentLongObjectMap<>());
+
+        // Count the process before it's visible, the filter must never report a false negative.
+        filter.add(location.getWorld(), location.getBlockX(), location.getBlockY(), location.getBlockZ());
+
+        RegenerationProcess present = worldCache.putIfAbsent(keyOf(location), process);
+
+        if (present != null) {
+            filter.remove(location.getWorld(), location.getBlockX(), location.getBlockY(), location.getBlockZ());
+            log.fine(String.format("Cache already contains process for location %s", location));
+            return false;
         }
 
-        cache.add(process);
+        index(regionIndex, process.getRegionName(), process);
+        index(presetIndex, process.getPresetName(), process);
+
         log.fine("Registered regeneration process " + process);
+        return true;
     }
 
     @Nullable
     public RegenerationProcess getProcess(@NotNull Block block) {
+        String worldName = block.getWorld().getName();
 
-        Location location = block.getLocation();
+        if (!filter.mightContain(worldName, block.getX(), block.getY(), block.getZ()))
+            return null;
 
-        for (RegenerationProcess process : new HashSet<>(getCache())) {
+        ConcurrentLongObjectMap<RegenerationProcess> worldCache = cache.get(worldName);
 
-            // Don't know why I need to do this.
-            if (process == null)
-                continue;
+        if (worldCache == null)
+            return null;
 
-            // Try to convert simple location again and exit if the block's not there.
-            if (process.getBlock() == null)
-                continue;
+        RegenerationProcess process = worldCache.get(LocationUtil.blockKey(block));
 
-            if (!process.getBlock().getLocation().equals(location))
-                continue;
-
-            // Try to start the process again.
-            if (process.getTimeLeft() < 0 && !process.start()) {
-                return null;
-            }
+        if (process == null)
+            return null;
 
-            return process;
+        // Try to start the process again.
+        if (process.getTimeLeft() < 0 && !process.start()) {
+            return null;
         }
-        return null;
+
+        return process;
     }
 
     public boolean isRegenerating(@NotNull Block block) {
@@ -147,16 +262,196 @@ public class RegenerationManager {
         return process != null && process.getRegenerationTime() > System.currentTimeMillis();
     }
 
-    public void removeProcess(RegenerationProcess process) {
-        if (cache.remove(process)) {
+    /**
+     * @return False if the process wasn't registered.
+     */
+    public boolean removeProcess(RegenerationProcess process) {
+        ConcurrentLongObjectMap<RegenerationProcess> worldCache = cache.get(process.getLocation().getWorld());
+
+        if (worldCache != null && worldCache.remove(keyOf(process.getLocation()), process)) {
+            unindex(process);
+            plugin.getStorage().recordRemove(process.getLocation());
+            changed(process.getWorldName());
             log.fine(String.format("Removed process from cache: %s", process));
+            return true;
         } else {
             log.fine(String.format("Process %s not found, not removed.", process));
+            return false;
         }
     }
 
     public void removeProcess(@NotNull Block block) {
-        cache.removeIf(process -> process.getBlock().equals(block));
+        ConcurrentLongObjectMap<RegenerationProcess> worldCache = cache.get(block.getWorld().getName());
+
+        if (worldCache == null)
+            return;
+
+        RegenerationProcess process = worldCache.remove(LocationUtil.blockKey(block));
+
+        if (process != null) {
+            unindex(process);
+            plugin.getStorage().recordRemove(process.getLocation());
+            changed(process.getWorldName());
+        }
+    }
+
+    // Per key updates are atomic, sets are dropped once empty.
+    private static void index(Map<String, Set<RegenerationProcess>> index, @Nullable String key, RegenerationProcess process) {
+        if (key == null)
+            return;
+
+        index.compute(key, (k, set) -> {
+            if (set == null)
+                set = ConcurrentHashMap.newKeySet();
+            set.add(process);
+            return set;
+        });
+    }
+
+    private static void unindex(Map<String, Set<RegenerationProcess>> index, @Nullable String key, RegenerationProcess process) {
+        if (key == null)
+            return;
+
+        index.computeIfPresent(key, (k, set) -> {
+            set.remove(process);
+            return set.isEmpty() ? null : set;
+        });
+    }
+
+    private void unindex(RegenerationProcess process) {
+        SimpleLocation location = process.getLocation();
+        filter.remove(location.getWorld(), location.getBlockX(), location.getBlockY(), location.getBlockZ());
+
+        unindex(regionIndex, process.getRegionName(), process);
+        unindex(presetIndex, process.getPresetName(), process);
+    }
+
+    // --- Queries
+
+    /**
+     * @return Live, unmodifiable view of processes in the region. Size is O(1), nothing is copied.
+     */
+    @NotNull
+    public Collection<RegenerationProcess> getProcessesInRegion(@NotNull String regionName) {
+        return new IndexView(regionIndex, regionName);
+    }
+
+    /**
+     * @return Live, unmodifiable view of processes of the preset. Size is O(1), nothing is copied.
+     */
+    @NotNull
+    public Collection<RegenerationProcess> getProcessesByPreset(@NotNull String presetName) {
+        return new IndexView(presetIndex, presetName);
+    }
+
+    /**
+     * @return Live, unmodifiable view of processes in the world. Size is O(1), nothing is copied.
+     */
+    @NotNull
+    public Collection<RegenerationProcess> getProcessesInWorld(@NotNull String worldName) {
+        return new WorldView(worldName);
+    }
+
+    /**
+     * Keep a due process registered until its chunk loads. Has to be called from the main thread.
+     */
+    public void parkProcess(@NotNull RegenerationProcess process) {
+        registerProcess(process);
+        parked.park(process);
+        log.fine("Parked process " + process + " until its chunk loads.");
+    }
+
+    /**
+     * Resubmit all processes parked in the chunk. Has to be called from the main thread.
+     */
+    public void unparkChunk(@NotNull String worldName, int chunkX, int chunkZ) {
+        List<RegenerationProcess> processes = parked.unpark(worldName, chunkX, chunkZ);
+
+        if (processes.isEmpty())
+            return;
+
+        for (RegenerationProcess process : processes) {
+            // Restored processes get started, the ones parked before their event fired go through it again,
+            // the rest only needs the placement.
+            if (process.getState() == null) {
+                process.resume();
+            } else if (process.getState() == RegenerationProcess.State.CANCELLED) {
+                continue;
+            } else if (process.getState() == RegenerationProcess.State.DONE) {
+                // Cancelled while parked otherwise.
+                if (removeProcess(process))
+                    placementQueue.submit(process);
+            } else {
+                placementQueue.submitRegeneration(process);
+            }
+        }
+
+        log.fine(String.format("Resubmitted %d parked process(es) in chunk %s;%d;%d", processes.size(), worldName, chunkX, chunkZ));
+    }
+
+    /**
+     * Cancel all processes inside the region, whichever region they were created in.
+     * Includes processes already waiting for their event, placement or chunk. Has to be called from the main thread.
+     *
+     * @return Number of cancelled processes.
+     */
+    public int cancelProcesses(@NotNull RegenerationRegion region) {
+        World world = region.getMax().getWorld();
+
+        Predicate<RegenerationProcess> filter = process -> {
+            SimpleLocation location = process.getLocation();
+            return (world == null || world.getName().equals(location.getWorld()))
+                    && region.contains(location.getBlockX(), location.getBlockY(), location.getBlockZ());
+        };
+
+        Collection<RegenerationProcess> candidates = world == null ? cacheView : getProcessesInWorld(world.getName());
+
+        // Parked processes are in the cache as well, a process can be in more than one place.
+        Set<RegenerationProcess> inside = Collections.newSetFromMap(new IdentityHashMap<>());
+        for (RegenerationProcess process : candidates) {
+            if (filter.test(process))
+                inside.add(process);
+        }
+
+        inside.addAll(placementQueue.remove(filter));
+
+        if (world != null)
+            inside.addAll(parked.remove(world.getName(), filter));
+
+        inside.forEach(RegenerationProcess::cancel);
+        return inside.size();
+    }
+
+    /**
+     * @return Number of due processes waiting for their chunk to load.
+     */
+    public int getParkedCount() {
+        return parked.size();
+    }
+
+    private static long keyOf(SimpleLocation location) {
+        return LocationUtil.blockKey(location.getBlockX(), location.getBlockY(), location.getBlockZ());
+    }
+
+    private void forEachProcess(Consumer<RegenerationProcess> consumer) {
+        for (ConcurrentLongObjectMap<RegenerationProcess> worldCache : cache.values()) {
+            worldCache.forEach(consumer);
+        }
+    }
+
+    public void startScheduler() {
+        if (schedulerTask != null)
+            return;
+
+        this.schedulerTask = Bukkit.getScheduler().runTaskTimerAsynchronously(plugin, scheduler::tick, 1L, 1L);
+    }
+
+    public void stopScheduler() {
+        if (schedulerTask == null)
+            return;
+
+        schedulerTask.cancel();
+        this.schedulerTask = null;
     }
 
     public void startAutoSave() {
@@ -182,18 +477,15 @@ public class RegenerationManager {
 
     // Revert blocks before disabling
     public void revertAll(boolean synchronize) {
-        cache.forEach(process -> process.revertBlock(synchronize));
+        forEachProcess(process -> process.revertBlock(synchronize));
     }
 
-    private void purgeExpired() {
+    private void purgeExpired(Iterable<RegenerationProcess> processes) {
 
         // Clear invalid processes
-        for (RegenerationProcess process : new HashSet<>(cache)) {
-
-            if (process == null)
-                continue;
-
-            if (process.getTimeLeft() < 0)
+        for (RegenerationProcess process : processes) {
+            // Parked processes are handled when their chunk loads.
+            if (process.getTimeLeft() < 0 && process.getState() == RegenerationProcess.State.SCHEDULED)
                 process.regenerateBlock();
         }
     }
@@ -202,59 +494,166 @@ public class RegenerationManager {
         save(false);
     }
 
+    /**
+     * Changes are recorded to storage as they happen. Everything is only saved in full when forced
+     * or once there were more changes than running processes since the last full save.
+     *
+     * @param sync Wait for the write to finish and force a full save.
+     */
     public void save(boolean sync) {
-        cache.forEach(process -> {
-            if (process != null)
-                process.setTimeLeft(process.getRegenerationTime() - System.currentTimeMillis());
-        });
+        if (sync) {
+            save(plugin.getConfig().getLong("Storage.Shutdown-Timeout", 30), TimeUnit.SECONDS);
+            return;
+        }
+
+        StorageBackend storage = plugin.getStorage();
 
-        purgeExpired();
+        long changes = this.changes.get();
 
-        final List<RegenerationProcess> finalCache = new ArrayList<>(cache);
+        if (changes == savedChanges) {
+            log.fine("No changes since the last save, skipping.");
+            return;
+        }
+
+        int threshold = Math.max(plugin.getConfig().getInt("Auto-Save.Compact-After", 10000), getProcessCount());
+
+        if (storage.getPendingChanges() < threshold) {
+            log.fine(storage.getPendingChanges() + " change(s) since the last full save, only flushing.");
+            storage.flush();
+            this.savedChanges = changes;
+            return;
+        }
 
-        log.fine("Saving " + finalCache.size() + " regeneration processes..");
+        // Only rewrite worlds that changed.
+        Set<String> worlds = new HashSet<>(dirtyWorlds);
+        dirtyWorlds.removeAll(worlds);
+
+        saveAll(worlds, -1);
+        this.savedChanges = changes;
+    }
+
+    /**
+     * Save all worlds in full, which stores up to date times for all of them, and wait for the write at most the given time.
+     */
+    public void save(long timeout, @NotNull TimeUnit unit) {
+        long changes = this.changes.get();
+
+        // Everything is written, only the worlds changed meanwhile stay dirty.
+        dirtyWorlds.removeAll(new HashSet<>(dirtyWorlds));
+
+        saveAll(null, unit.toNanos(timeout));
+        this.savedChanges = changes;
+    }
 
-        CompletableFuture<Void> future = plugin.getGsonHelper().save(finalCache, plugin.getDataFolder().getPath() + "/Data.json")
+    /**
+     * @param worlds  Worlds to save, all of them when null.
+     * @param timeout Nanoseconds to wait for the write, doesn't wait when negative.
+     */
+    private void saveAll(@Nullable Set<String> worlds, long timeout) {
+        StorageBackend storage = plugin.getStorage();
+
+        long start = System.currentTimeMillis();
+
+        Collection<RegenerationProcess> processes;
+        if (worlds == null) {
+            processes = cacheView;
+        } else {
+            processes = new ArrayList<>();
+            for (String worldName : worlds) {
+                ConcurrentLongObjectMap<RegenerationProcess> worldCache = cache.get(worldName);
+                if (worldCache != null)
+                    worldCache.forEach(processes::add);
+            }
+        }
+
+        processes.forEach(process -> process.setTimeLeft(process.getRegenerationTime() - System.currentTimeMillis()));
+
+        purgeExpired(processes);
+
+        int count = processes.size();
+
+        log.fine("Saving " + count + " regeneration processes..");
+
+        CompletableFuture<Void> future = (worlds == null ? storage.saveProcesses(processes) : storage.saveProcesses(processes, worlds))
+                .thenRun(() -> {
+                    long now = System.currentTimeMillis();
+                    this.lastSaveDuration = now - start;
+                    this.lastSaveCount = count;
+                    this.lastSaveSize = storage.getSize();
+                    this.lastSaveTime = now;
+                })
                 .exceptionally(e -> {
                     log.severe("Could not save processes: " + e.getMessage());
                     e.printStackTrace();
                     return null;
                 });
 
-        if (sync) {
-            future.join();
+        if (timeout >= 0) {
+            try {
+                future.get(timeout, TimeUnit.NANOSECONDS);
+            } catch (TimeoutException e) {
+                log.warning("Saving processes did not finish within " + TimeUnit.NANOSECONDS.toSeconds(timeout) + " seconds.");
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            } catch (ExecutionException e) {
+                // Already logged above.
+            }
         }
     }
 
     public void load() {
-        plugin.getGsonHelper().loadListAsync(plugin.getDataFolder().getPath() + "/Data.json", RegenerationProcess.class)
-                .thenAcceptAsync(loadedProcesses -> {
-                    cache.clear();
-
-                    if (loadedProcesses == null)
-                        loadedProcesses = new ArrayList<>();
-
-                    for (RegenerationProcess process : loadedProcesses) {
-
-                        if (!process.convertLocation()) {
-                            this.retry = true;
-                            break;
-                        }
+        cache.clear();
+        regionIndex.clear();
+        presetIndex.clear();
+        filter.clear();
+
+        // Chunks are read as they load, only catch up with the ones loaded already.
+        if (plugin.getStorage() instanceof ChunkStorage) {
+            for (World world : Bukkit.getWorlds()) {
+                for (Chunk chunk : world.getLoadedChunks()) {
+                    loadChunk(chunk);
+                }
+            }
+            log.info("Loaded " + getProcessCount() + " regeneration process(es) from loaded chunks...");
+            return;
+        }
 
-                        if (!process.convertPreset()) {
-                            process.revert();
+        CompletableFuture.<Set<String>>supplyAsync(() -> {
+                    try {
+                        return plugin.getStorage().getStoredWorlds();
+                    } catch (IOException e) {
+                        throw new CompletionException(e);
+                    }
+                }, loadExecutor)
+                .thenCompose(worlds -> {
+                    List<CompletableFuture<List<RegenerationProcess>>> futures = new ArrayList<>();
+
+                    for (String worldName : worlds) {
+                        // Parsed once the world loads.
+                        if (Bukkit.getWorld(worldName) == null) {
+                            pendingWorlds.add(worldName);
+                            log.info("World " + worldName + " is not loaded, loading its regeneration processes once it is.");
                             continue;
                         }
-                        log.fine("Prepared regeneration process " + process);
+
+                        futures.add(loadWorld(worldName));
+                    }
+
+                    return CompletableFuture.allOf(futures.toArray(new CompletableFuture[0])).thenApply(v -> {
+                        List<RegenerationProcess> restored = new ArrayList<>();
+                        futures.forEach(future -> restored.addAll(future.join()));
+                        return restored;
+                    });
+                })
+                .thenAccept(restored -> {
+                    log.info("Loaded " + getProcessCount() + " regeneration process(es)...");
+
+                    if (plugin.getStorage().needsFullSave()) {
+                        log.info("Converting loaded processes to the current storage format...");
+                        saveAll(null, -1);
                     }
 
-                    if (!this.retry) {
-                        // Start em
-                        loadedProcesses.forEach(RegenerationProcess::start);
-                        log.info("Loaded " + this.cache.size() + " regeneration process(es)...");
-                    } else
-                        log.info(
-                                "One of the worlds is probably not loaded. Loading after complete server load instead.");
+                    restore(restored);
                 }).exceptionally(e -> {
                     log.severe("Could not load processes: " + e.getMessage());
                     e.printStackTrace();
@@ -262,16 +661,235 @@ public class RegenerationManager {
                 });
     }
 
-    public void reattemptLoad() {
-        if (!retry)
+    // Read and register processes of a single world on the loader threads.
+    private CompletableFuture<List<RegenerationProcess>> loadWorld(String worldName) {
+        return CompletableFuture.supplyAsync(() -> {
+            List<RegenerationProcess> loadedProcesses;
+            try {
+                loadedProcesses = plugin.getStorage().loadProcesses(worldName);
+            } catch (Exception e) {
+                log.log(Level.SEVERE, "Could not load regeneration processes of world " + worldName, e);
+                return Collections.emptyList();
+            }
+
+            List<RegenerationProcess> restored = new ArrayList<>(loadedProcesses.size());
+
+            for (RegenerationProcess process : loadedProcesses) {
+
+                if (process.getLocation() == null) {
+                    log.severe("Could not load location for process " + process);
+                    continue;
+                }
+
+                // Keeps the saved world name if the world got unloaded meanwhile, the process gets parked until it's back.
+                process.convertLocation();
+
+                if (!process.convertPreset()) {
+                    process.revert();
+                    continue;
+                }
+
+                if (process.getOriginalData() != null)
+                    process.setOriginalData(nodeDataInterner.intern(process.getOriginalData()));
+
+                process.prepareRestore();
+                restored.add(process);
+                log.fine("Prepared regeneration process " + process);
+            }
+
+            // Register right away so lookups and saves see them, start them in batches.
+            restored.forEach(this::register);
+            return restored;
+        }, loadExecutor);
+    }
+
+    /**
+     * Read and start processes stored in the chunk, only with chunk storage. Has to be called from the main thread.
+     */
+    public void loadChunk(@NotNull Chunk chunk) {
+        if (!(plugin.getStorage() instanceof ChunkStorage))
+            return;
+
+        ChunkStorage storage = (ChunkStorage) plugin.getStorage();
+
+        for (RegenerationProcess process : storage.readChunk(chunk)) {
+            if (!process.convertPreset()) {
+                storage.recordRemove(process.getLocation());
+                continue;
+            }
+
+            if (process.getOriginalData() != null)
+                process.setOriginalData(nodeDataInterner.intern(process.getOriginalData()));
+
+            process.prepareRestore();
+
+            // Already running if the chunk got loaded again before it was unloaded fully, or parked meanwhile.
+            if (register(process))
+                process.resume();
+        }
+    }
+
+    /**
+     * Write processes of the chunk and drop them from memory, only with chunk storage. Has to be called from the main thread.
+     */
+    public void unloadChunk(@NotNull Chunk chunk) {
+        if (!(plugin.getStorage() instanceof ChunkStorage))
+            return;
+
+        for (RegenerationProcess process : ((ChunkStorage) plugin.getStorage()).unloadChunk(chunk)) {
+            process.stop();
+
+            ConcurrentLongObjectMap<RegenerationProcess> worldCache = cache.get(process.getWorldName());
+
+            // Not recorded as a removal, the process stays stored in the chunk.
+            if (worldCache != null && worldCache.remove(keyOf(process.getLocation()), process))
+                unindex(process);
+        }
+    }
+
+    /**
+     * Write changed chunks of the world before it saves, only with chunk storage.
+     */
+    public void saveChunks(@NotNull String worldName) {
+        if (plugin.getStorage() instanceof ChunkStorage)
+            ((ChunkStorage) plugin.getStorage()).saveWorld(worldName);
+    }
+
+    /**
+     * Load processes of a world that wasn't loaded on startup.
+     */
+    public void loadPendingWorld(@NotNull String worldName) {
+        if (!pendingWorlds.remove(worldName))
+            return;
+
+        // Async even if the future is done already, this runs in the world load event.
+        loadWorld(worldName).thenAcceptAsync(restored -> {
+            log.info("Loaded " + restored.size() + " regeneration process(es) of world " + worldName + "...");
+            restore(restored);
+        }, loadExecutor);
+    }
+
+    // Never blocks, safe to call from any thread. Anchors are collected on the main thread, processes sorted on the loader threads.
+    private void restore(List<RegenerationProcess> processes) {
+        if (processes.isEmpty() || !plugin.isEnabled())
+            return;
+
+        Bukkit.getScheduler().runTask(plugin, () -> {
+            Map<String, List<int[]>> anchors = RestoreTask.collectAnchors();
+
+            CompletableFuture.runAsync(() -> RestoreTask.prioritize(processes, anchors), loadExecutor)
+                    .whenComplete((v, e) -> {
+                        if (e != null)
+                            log.log(Level.WARNING, "Could not prioritize restored processes, restoring in saved order.", e);
+
+                        if (plugin.isEnabled())
+                            Bukkit.getScheduler().runTask(plugin, () -> startRestore(processes));
+                    });
+        });
+    }
+
+    private void startRestore(List<RegenerationProcess> processes) {
+        // Worlds loaded later join the running restore.
+        if (restoreTask != null && !restoreTask.isDone()) {
+            restoreTask.add(processes);
+            return;
+        }
+
+        cancelRestore();
+
+        this.restoreTask = new RestoreTask(plugin, processes);
+        restoreTask.start();
+    }
+
+    public void cancelRestore() {
+        if (restoreTask == null)
             return;
 
-        load();
-        // Override retry flag from this load.
-        this.retry = false;
+        restoreTask.cancel();
+        this.restoreTask = null;
+    }
+
+    // Catch worlds that loaded before the listener was registered.
+    public void reattemptLoad() {
+        for (String worldName : new ArrayList<>(pendingWorlds)) {
+            if (Bukkit.getWorld(worldName) != null)
+                loadPendingWorld(worldName);
+        }
     }
 
-    public List<RegenerationProcess> getCache() {
-        return Collections.unmodifiableList(cache);
+    // Named class, Gson skips anonymous ones when serializing.
+    private class CacheView extends AbstractCollection<RegenerationProcess> {
+        @Override
+        public @NotNull Iterator<RegenerationProcess> iterator() {
+            return Iterators.concat(Iterators.transform(cache.values().iterator(), ConcurrentLongObjectMap::iterator));
+        }
+
+        @Override
+        public int size() {
+            return getProcessCount();
+        }
+    }
+
+    private static class IndexView extends AbstractCollection<RegenerationProcess> {
+        private final Map<String, Set<RegenerationProcess>> index;
+        private final String key;
+
+        private IndexView(Map<String, Set<RegenerationProcess>> index, String key) {
+            this.index = index;
+            this.key = key;
+        }
+
+        @Override
+        public @NotNull Iterator<RegenerationProcess> iterator() {
+            Set<RegenerationProcess> set = index.get(key);
+            return set == null ? Collections.emptyIterator() : Iterators.unmodifiableIterator(set.iterator());
+        }
+
+        @Override
+        public boolean contains(Object o) {
+            Set<RegenerationProcess> set = index.get(key);
+            return set != null && set.contains(o);
+        }
+
+        @Override
+        public int size() {
+            Set<RegenerationProcess> set = index.get(key);
+            return set == null ? 0 : set.size();
+        }
+    }
+
+    private class WorldView extends AbstractCollection<RegenerationProcess> {
+        private final String worldName;
+
+        private WorldView(String worldName) {
+            this.worldName = worldName;
+        }
+
+        @Override
+        public @NotNull Iterator<RegenerationProcess> iterator() {
+            ConcurrentLongObjectMap<RegenerationProcess> worldCache = cache.get(worldName);
+            return worldCache == null ? Collections.emptyIterator() : worldCache.iterator();
+        }
+
+        @Override
+        public int size() {
+            ConcurrentLongObjectMap<RegenerationProcess> worldCache = cache.get(worldName);
+            return worldCache == null ? 0 : worldCache.size();
+        }
+    }
+
+    public int getProcessCount() {
+        int count = 0;
+        for (ConcurrentLongObjectMap<RegenerationProcess> worldCache : cache.values()) {
+            count += worldCache.size();
+        }
+        return count;
+    }
+
+    /**
+     * @return Unmodifiable, weakly consistent view of all running processes.
+     */
+    public Collection<RegenerationProcess> getCache() {
+        return Collections.unmodifiableCollection(cacheView);
     }
 }
\ No newline at end of file
@@ -0,0 +1,180 @@
+package nl.aurorion.blockregen.system.regeneration;
+
+import lombok.extern.java.Log;
+import nl.aurorion.blockregen.BlockRegen;
+import nl.aurorion.blockregen.system.regeneration.struct.RegenerationProcess;
+import nl.aurorion.blockregen.system.regeneration.struct.SimpleLocation;
+import org.bukkit.Bukkit;
+import org.bukkit.Location;
+import org.bukkit.World;
+import org.bukkit.entity.Player;
+import org.bukkit.scheduler.BukkitTask;
+import org.jetbrains.annotations.NotNull;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.logging.Level;
+
+/**
+ * Starts loaded processes in time-sliced batches on the main thread.
+ * <p>
+ * Processes closest to online players and world spawns go first. Those in unloaded chunks are parked until the chunk loads.
+ */
+@Log
+public class RestoreTask implements Runnable {
+
+    // Seconds between progress reports.
+    private static final long REPORT_INTERVAL = 5;
+
+    private final BlockRegen plugin;
+
+    private final List<RegenerationProcess> processes;
+
+    private final long maxNanos;
+
+    private int index = 0;
+
+    private int parked = 0;
+
+    private long started;
+
+    private long lastReport;
+
+    private BukkitTask task;
+
+    /**
+     * @param processes Processes to restore, already in the order they should be started in.
+     */
+    public RestoreTask(BlockRegen plugin, @NotNull List<RegenerationProcess> processes) {
+        this.plugin = plugin;
+        this.processes = new ArrayList<>(processes);
+        this.maxNanos = TimeUnit.MILLISECONDS.toNanos(Math.max(1, plugin.getConfig().getInt("Restore.Max-Time-Per-Tick", 5)));
+    }
+
+    public void start() {
+        if (task != null)
+            return;
+
+        this.started = System.currentTimeMillis();
+        this.lastReport = started;
+        this.task = Bukkit.getScheduler().runTaskTimer(plugin, this, 1L, 1L);
+    }
+
+    public void cancel() {
+        if (task == null)
+            return;
+
+        task.cancel();
+        this.task = null;
+    }
+
+    /**
+     * Queue more processes after those already waiting, ex. of a world loaded later.
+     */
+    public void add(@NotNull List<RegenerationProcess> processes) {
+        this.processes.addAll(processes);
+    }
+
+    public boolean isDone() {
+        return index >= processes.size();
+    }
+
+    @Override
+    public void run() {
+        RegenerationManager regenerationManager = plugin.getRegenerationManager();
+
+        long start = System.nanoTime();
+
+        while (index < processes.size() && System.nanoTime() - start < maxNanos) {
+            RegenerationProcess process = processes.get(index++);
+
+            // Already started by a lookup or a chunk load.
+            if (process.getState() != null)
+                continue;
+
+            try {
+                if (process.isChunkLoaded()) {
+                    process.resume();
+                } else {
+                    regenerationManager.parkProcess(process);
+                    parked++;
+                }
+            } catch (Exception e) {
+                log.log(Level.SEVERE, "Could not restore process " + process, e);
+            }
+        }
+
+        long now = System.currentTimeMillis();
+
+        if (isDone()) {
+            log.info(String.format("Restored %d regeneration process(es) in %.1fs, %d waiting for their chunk to load.",
+                    processes.size(), (now - started) / 1000.0, parked));
+            cancel();
+            return;
+        }
+
+        if (now - lastReport >= TimeUnit.SECONDS.toMillis(REPORT_INTERVAL)) {
+            log.info(String.format("Restoring regeneration processes... %d/%d (%d%%)",
+                    index, processes.size(), index * 100 / processes.size()));
+            this.lastReport = now;
+        }
+    }
+
+    /**
+     * Collect chunk coordinates of online players and world spawns per world. Has to be called from the main thread.
+     */
+    @NotNull
+    public static Map<String, List<int[]>> collectAnchors() {
+        Map<String, List<int[]>> anchors = new HashMap<>();
+
+        for (World world : Bukkit.getWorlds()) {
+            addAnchor(anchors, world.getSpawnLocation());
+        }
+
+        for (Player player : Bukkit.getOnlinePlayers()) {
+            addAnchor(anchors, player.getLocation());
+        }
+        return anchors;
+    }
+
+    private static void addAnchor(Map<String, List<int[]>> anchors, Location location) {
+        if (location.getWorld() == null)
+            return;
+
+        anchors.computeIfAbsent(location.getWorld().getName(), k -> new ArrayList<>())
+                .add(new int[]{location.getBlockX() >> 4, location.getBlockZ() >> 4});
+    }
+
+    /**
+     * Sort the processes by chunk distance to the closest anchor in their world.
+     */
+    public static void prioritize(@NotNull List<RegenerationProcess> processes, @NotNull Map<String, List<int[]>> anchors) {
+        Map<RegenerationProcess, Long> distances = new HashMap<>(processes.size() * 2);
+
+        for (RegenerationProcess process : processes) {
+            distances.put(process, distance(process.getLocation(), anchors.get(process.getWorldName())));
+        }
+
+        processes.sort(Comparator.comparingLong(distances::get));
+    }
+
+    private static long distance(SimpleLocation location, List<int[]> anchors) {
+        if (anchors == null)
+            return Long.MAX_VALUE;
+
+        int chunkX = location.getBlockX() >> 4;
+        int chunkZ = location.getBlockZ() >> 4;
+
+        long min = Long.MAX_VALUE;
+        for (int[] anchor : anchors) {
+            long dx = chunkX - anchor[0];
+            long dz = chunkZ - anchor[1];
+            min = Math.min(min, dx * dx + dz * dz);
+        }
+        return min;
+    }
+}
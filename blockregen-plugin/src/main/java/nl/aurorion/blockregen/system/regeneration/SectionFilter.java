@@ -0,0 +1,50 @@
+package nl.aurorion.blockregen.system.regeneration;
+
+import org.jetbrains.annotations.NotNull;
+
+import java.util.concurrent.atomic.AtomicIntegerArray;
+
+/**
+ * Counting filter of chunk sections that hold at least one process.
+ * <p>
+ * Sections hash into a fixed table of counters, collisions only cause false positives.
+ * A zero counter means there's definitely no process in the section.
+ */
+public class SectionFilter {
+
+    // 2^18 counters, 1 MB.
+    private static final int BITS = 18;
+
+    private final AtomicIntegerArray counts = new AtomicIntegerArray(1 << BITS);
+
+    private static int slot(String world, int x, int y, int z) {
+        long h = world.hashCode();
+        h = h * 31 + (x >> 4);
+        h = h * 31 + (y >> 4);
+        h = h * 31 + (z >> 4);
+        h *= 0x9E3779B97F4A7C15L;
+        return (int) (h >>> (64 - BITS));
+    }
+
+    public void add(@NotNull String world, int x, int y, int z) {
+        counts.incrementAndGet(slot(world, x, y, z));
+    }
+
+    // Only call for a matching #add().
+    public void remove(@NotNull String world, int x, int y, int z) {
+        counts.decrementAndGet(slot(world, x, y, z));
+    }
+
+    /**
+     * @return False if there's definitely no process in the section of the block.
+     */
+    public boolean mightContain(@NotNull String world, int x, int y, int z) {
+        return counts.get(slot(world, x, y, z)) != 0;
+    }
+
+    public void clear() {
+        for (int i = 0; i < counts.length(); i++) {
+            counts.set(i, 0);
+        }
+    }
+}
@@ -0,0 +1,53 @@
+package nl.aurorion.blockregen.system.regeneration.scheduler;
+
+import org.jetbrains.annotations.NotNull;
+
+/**
+ * Schedules delayed regeneration tasks.
+ * <p>
+ * Time only moves forward on {@link #tick()}, the implementation decides where the current time comes from.
+ */
+public interface RegenerationScheduler {
+
+    /**
+     * Schedule a task to run after the delay.
+     *
+     * @param delay Delay in milliseconds.
+     */
+    @NotNull
+    Handle schedule(@NotNull Runnable task, long delay);
+
+    /**
+     * Advance to the current time and run all due tasks on the calling thread.
+     *
+     * @return Number of tasks that were due.
+     */
+    int tick();
+
+    /**
+     * @return Number of tasks waiting to run.
+     */
+    int getPending();
+
+    /**
+     * @return Number of tasks that were due on the last tick.
+     */
+    int getLastDue();
+
+    interface Handle {
+
+        /**
+         * @return System time in milliseconds at which the task is due.
+         */
+        long getDeadline();
+
+        /**
+         * Cancel the task if it didn't run yet.
+         *
+         * @return True if the task was cancelled by this call.
+         */
+        boolean cancel();
+
+        boolean isCancelled();
+    }
+}
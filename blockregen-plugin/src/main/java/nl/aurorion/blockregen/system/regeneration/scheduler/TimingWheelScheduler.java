@@ -0,0 +1,240 @@
+package nl.aurorion.blockregen.system.regeneration.scheduler;
+
+import lombok.extern.java.Log;
+import org.jetbrains.annotations.NotNull;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.LongSupplier;
+import java.util.logging.Level;
+
+/**
+ * Hierarchical timing wheel with millisecond resolution.
+ * <p>
+ * The lowest wheel has a slot per millisecond, every higher wheel covers a full rotation of the one below with each slot.
+ * Tasks are placed on the lowest wheel that can hold their deadline and cascade down as the time approaches it.
+ * Scheduling and cancelling is O(1), a tick costs the number of elapsed milliseconds plus the number of due tasks.
+ */
+@Log
+public class TimingWheelScheduler implements RegenerationScheduler {
+
+    // Bits per wheel, lowest first. Covers 2^32 ms (~49 days), longer delays are re-cascaded from the top wheel.
+    private static final int[] WHEEL_BITS = {8, 6, 6, 6, 6};
+
+    private static final int LEVELS = WHEEL_BITS.length;
+
+    private static final int[] SHIFTS = new int[LEVELS];
+
+    private static final long SPAN;
+
+    static {
+        int shift = 0;
+        for (int level = 0; level < LEVELS; level++) {
+            SHIFTS[level] = shift;
+            shift += WHEEL_BITS[level];
+        }
+        SPAN = 1L << shift;
+    }
+
+    private final LongSupplier clock;
+
+    private final Entry[][] wheels = new Entry[LEVELS][];
+
+    // Entries that were already due when scheduled, run on the next tick.
+    private final Entry overdue = new Entry(null, 0);
+
+    // Last processed millisecond.
+    private long currentTime;
+
+    private int pending = 0;
+
+    private volatile int lastDue = 0;
+
+    public TimingWheelScheduler() {
+        this(System::currentTimeMillis);
+    }
+
+    /**
+     * @param clock Source of the current time in milliseconds.
+     */
+    public TimingWheelScheduler(@NotNull LongSupplier clock) {
+        this.clock = clock;
+        this.currentTime = clock.getAsLong();
+
+        for (int level = 0; level < LEVELS; level++) {
+            Entry[] wheel = new Entry[1 << WHEEL_BITS[level]];
+            for (int slot = 0; slot < wheel.length; slot++) {
+                wheel[slot] = new Entry(null, 0);
+            }
+            wheels[level] = wheel;
+        }
+    }
+
+    @Override
+    public @NotNull Handle schedule(@NotNull Runnable task, long delay) {
+        synchronized (this) {
+            Entry entry = new Entry(task, clock.getAsLong() + Math.max(0, delay));
+            place(entry);
+            pending++;
+            return entry;
+        }
+    }
+
+    // Link the entry into the slot matching its deadline.
+    private void place(Entry entry) {
+        long delta = entry.deadline - currentTime;
+
+        if (delta <= 0) {
+            overdue.append(entry);
+            return;
+        }
+
+        // Clamp deadlines beyond the top wheel, they get placed again on cascade.
+        long deadline = delta >= SPAN ? currentTime + SPAN - 1 : entry.deadline;
+        delta = deadline - currentTime;
+
+        int level = 0;
+        while (level < LEVELS - 1 && delta >= 1L << SHIFTS[level + 1]) {
+            level++;
+        }
+
+        Entry[] wheel = wheels[level];
+        int slot = (int) (deadline >>> SHIFTS[level]) & (wheel.length - 1);
+        wheel[slot].append(entry);
+    }
+
+    @Override
+    public int tick() {
+        List<Entry> due = new ArrayList<>();
+
+        synchronized (this) {
+            long now = clock.getAsLong();
+
+            while (currentTime < now) {
+                currentTime++;
+
+                int slot = (int) currentTime & (wheels[0].length - 1);
+
+                if (slot == 0)
+                    cascade(1);
+
+                wheels[0][slot].drainTo(due);
+            }
+
+            overdue.drainTo(due);
+
+            pending -= due.size();
+        }
+
+        this.lastDue = due.size();
+
+        for (Entry entry : due) {
+            try {
+                entry.task.run();
+            } catch (Exception e) {
+                log.log(Level.SEVERE, "Scheduled regeneration task threw an exception", e);
+            }
+        }
+        return due.size();
+    }
+
+    // Move entries from the current slot of the level down, recursively when that level wraps as well.
+    private void cascade(int level) {
+        if (level >= LEVELS)
+            return;
+
+        Entry[] wheel = wheels[level];
+        int slot = (int) (currentTime >>> SHIFTS[level]) & (wheel.length - 1);
+
+        if (slot == 0)
+            cascade(level + 1);
+
+        Entry head = wheel[slot];
+        while (head.next != head) {
+            Entry entry = head.next;
+            entry.unlink();
+            place(entry);
+        }
+    }
+
+    @Override
+    public synchronized int getPending() {
+        return pending;
+    }
+
+    @Override
+    public int getLastDue() {
+        return lastDue;
+    }
+
+    /*
+     * Node of a circular doubly linked slot list. Slot heads are sentinels without a task.
+     * */
+    private class Entry implements Handle {
+
+        private final Runnable task;
+
+        private final long deadline;
+
+        private Entry prev = this;
+        private Entry next = this;
+
+        private boolean cancelled = false;
+
+        private Entry(Runnable task, long deadline) {
+            this.task = task;
+            this.deadline = deadline;
+        }
+
+        private void append(Entry entry) {
+            entry.prev = this.prev;
+            entry.next = this;
+            this.prev.next = entry;
+            this.prev = entry;
+        }
+
+        private void unlink() {
+            prev.next = next;
+            next.prev = prev;
+            prev = next = this;
+        }
+
+        private boolean isLinked() {
+            return next != this;
+        }
+
+        // Unlink all entries of this sentinel into the list.
+        private void drainTo(List<Entry> list) {
+            while (next != this) {
+                Entry entry = next;
+                entry.unlink();
+                list.add(entry);
+            }
+        }
+
+        @Override
+        public long getDeadline() {
+            return deadline;
+        }
+
+        @Override
+        public boolean cancel() {
+            synchronized (TimingWheelScheduler.this) {
+                if (cancelled || !isLinked())
+                    return false;
+
+                unlink();
+                cancelled = true;
+                pending--;
+                return true;
+            }
+        }
+
+        @Override
+        public boolean isCancelled() {
+            synchronized (TimingWheelScheduler.this) {
+                return cancelled;
+            }
+        }
+    }
+}
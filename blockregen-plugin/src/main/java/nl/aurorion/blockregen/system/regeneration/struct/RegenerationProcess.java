@@ -8,34 +8,33 @@ import lombok.extern.java.Log;
 import nl.aurorion.blockregen.BlockRegen;
 import nl.aurorion.blockregen.api.BlockRegenBlockRegenerationEvent;
 import nl.aurorion.blockregen.system.preset.struct.BlockPreset;
-import nl.aurorion.blockregen.util.LocationUtil;
+import nl.aurorion.blockregen.system.regeneration.PlacementQueue;
+import nl.aurorion.blockregen.system.regeneration.scheduler.RegenerationScheduler;
 import nl.aurorion.blockregen.version.api.NodeData;
 import org.bukkit.Bukkit;
-import org.bukkit.Location;
 import org.bukkit.Material;
+import org.bukkit.World;
 import org.bukkit.block.Block;
-import org.bukkit.scheduler.BukkitTask;
+import org.jetbrains.annotations.Nullable;
 
 import java.util.Objects;
+import java.util.concurrent.atomic.AtomicReferenceFieldUpdater;
 
 @Log
 @Data
-public class RegenerationProcess implements Runnable {
+public class RegenerationProcess implements Runnable, PlacementQueue.Placement {
 
     private SimpleLocation location;
 
-    private transient Block block;
-
     @Getter
     private XMaterial originalMaterial;
 
+    // Shared between processes with equal data, never modify.
     @Getter
     private NodeData originalData;
 
     @Getter
     private String regionName;
-    @Getter
-    private String worldName;
 
     private String presetName;
 
@@ -57,10 +56,31 @@ public class RegenerationProcess implements Runnable {
     @Setter
     private transient XMaterial regenerateInto;
 
-    private transient BukkitTask task;
+    // Set on the main thread, cleared by the timer thread as well.
+    private transient volatile RegenerationScheduler.Handle task;
+
+    private static final AtomicReferenceFieldUpdater<RegenerationProcess, RegenerationScheduler.Handle> TASK_UPDATER =
+            AtomicReferenceFieldUpdater.newUpdater(RegenerationProcess.class, RegenerationScheduler.Handle.class, "task");
+
+    /*
+     * Lifecycle of the process, scheduled -> regenerating -> done, or cancelled at any point.
+     * -- null when freshly created or loaded, transitions are atomic as regeneration runs async.
+     */
+    @Getter
+    private transient volatile State state;
+
+    private static final AtomicReferenceFieldUpdater<RegenerationProcess, State> STATE_UPDATER =
+            AtomicReferenceFieldUpdater.newUpdater(RegenerationProcess.class, State.class, "state");
+
+    public enum State {
+        SCHEDULED,
+        REGENERATING,
+        DONE,
+        CANCELLED
+    }
 
+    // The block is not kept around, it's resolved from the location when needed.
     public RegenerationProcess(Block block, NodeData originalData, BlockPreset preset) {
-        this.block = block;
         this.location = new SimpleLocation(block.getLocation());
 
         this.preset = preset;
@@ -72,6 +92,16 @@ public class RegenerationProcess implements Runnable {
         this.replaceMaterial = preset.getReplaceMaterial().get();
     }
 
+    // Used when loading from storage, the preset is resolved with #convertPreset().
+    public RegenerationProcess(SimpleLocation location, XMaterial originalMaterial, NodeData originalData, String presetName, String regionName, long timeLeft) {
+        this.location = location;
+        this.originalMaterial = originalMaterial;
+        this.originalData = originalData;
+        this.presetName = presetName;
+        this.regionName = regionName;
+        this.timeLeft = timeLeft;
+    }
+
     public XMaterial getRegenerateInto() {
         // Make sure we always get something.
         if (regenerateInto == null)
@@ -92,12 +122,24 @@ public class RegenerationProcess implements Runnable {
         // Ensure to stop and null anything that ran before.
         stop();
 
-        BlockRegen plugin = BlockRegen.getInstance();
+        // The timer can start regenerating in between, only schedule from the state that was checked.
+        State current;
+        do {
+            current = this.state;
 
-        // Register that the process is actually running now
-        // #start() can be called even on a process already in cache due to #contains() checks (which use #equals()) in RegenerationManager.
-        // Two processes with the same location cannot be added.
-        plugin.getRegenerationManager().registerProcess(this);
+            // Don't reschedule a process that's already being regenerated.
+            if (current == State.REGENERATING) {
+                log.fine("Process " + this + " is regenerating, not starting.");
+                return false;
+            }
+
+            if (current == State.CANCELLED) {
+                log.fine("Process " + this + " got cancelled, not starting.");
+                return false;
+            }
+        } while (!STATE_UPDATER.compareAndSet(this, current, State.SCHEDULED));
+
+        BlockRegen plugin = BlockRegen.getInstance();
 
         // If timeLeft is -1, generate a new one from preset regen delay.
         if (timeLeft == -1) {
@@ -107,6 +149,11 @@ public class RegenerationProcess implements Runnable {
 
         this.regenerationTime = System.currentTimeMillis() + timeLeft;
 
+        // Register that the process is actually running now, after the timing is known so it gets journaled with it.
+        // #start() can be called even on a process already in cache due to #contains() checks (which use #equals()) in RegenerationManager.
+        // Two processes with the same location cannot be added.
+        plugin.getRegenerationManager().registerProcess(this);
+
         // No need to start a task when it's time to regenerate already.
         if (timeLeft == 0 || regenerationTime <= System.currentTimeMillis()) {
             regenerate();
@@ -117,7 +164,12 @@ public class RegenerationProcess implements Runnable {
         // Replace the block
 
         if (getReplaceMaterial() != null) {
-            Bukkit.getScheduler().runTask(plugin, () -> {
+            plugin.getRegenerationManager().getPlacementQueue().submit(() -> {
+                // Nothing to replace in an unloaded chunk, it's either already replaced or regenerates before anyone sees it.
+                if (state == State.CANCELLED || !isChunkLoaded())
+                    return;
+
+                Block block = getBlock();
                 plugin.getVersionManager().getMethods().setType(block, getReplaceMaterial());
                 this.originalData.place(block); // Apply data
                 log.fine("Replaced block for " + this);
@@ -125,11 +177,35 @@ public class RegenerationProcess implements Runnable {
         }
 
         // Start the task
-        this.task = Bukkit.getScheduler().runTaskLaterAsynchronously(plugin, this, timeLeft / 50);
+        this.task = plugin.getRegenerationManager().getScheduler().schedule(this, timeLeft);
+
+        // Fired before the handle was stored, don't keep it around.
+        if (this.state != State.SCHEDULED)
+            stop();
         log.fine(String.format("Regenerate %s in %ds", this, timeLeft / 1000));
         return true;
     }
 
+    /**
+     * Fix the regeneration time of a loaded process without starting it, so it keeps counting down while it waits.
+     */
+    public void prepareRestore() {
+        if (timeLeft == -1) {
+            int regenDelay = preset.getDelay().getInt();
+            this.timeLeft = regenDelay * 1000L;
+        }
+
+        this.regenerationTime = System.currentTimeMillis() + timeLeft;
+    }
+
+    /**
+     * Start a restored process with the time it has left since #prepareRestore().
+     */
+    public boolean resume() {
+        this.timeLeft = Math.max(0, regenerationTime - System.currentTimeMillis());
+        return start();
+    }
+
     @Override
     public void run() {
         regenerate();
@@ -137,59 +213,112 @@ public class RegenerationProcess implements Runnable {
 
     /**
      * Regenerate the block.
+     * <p>
+     * The regeneration event is fired and the block placed with the next main thread pass of the placement queue.
      */
     public void regenerate() {
 
+        // Only one caller gets to regenerate, the timer and commands can race here.
+        if (!STATE_UPDATER.compareAndSet(this, State.SCHEDULED, State.REGENERATING)) {
+            log.fine("Process " + this + " is not scheduled, not regenerating.");
+            return;
+        }
+
         // Cancel the task if running.
-        if (task != null)
-            task.cancel();
+        stop();
 
         BlockRegen plugin = BlockRegen.getInstance();
 
-        // Call the event
-        BlockRegenBlockRegenerationEvent blockRegenBlockRegenEvent = new BlockRegenBlockRegenerationEvent(this);
-        Bukkit.getScheduler().runTask(plugin, () -> Bukkit.getPluginManager().callEvent(blockRegenBlockRegenEvent));
-
         plugin.getRegenerationManager().removeProcess(this);
+        plugin.getRegenerationManager().getPlacementQueue().submitRegeneration(this);
+    }
 
-        if (blockRegenBlockRegenEvent.isCancelled())
+    /**
+     * Fire the regeneration event and regenerate the block unless it got cancelled.
+     * Called on the main thread by the placement queue for all processes that came due since the last tick.
+     */
+    public void completeRegeneration() {
+        // Cancelled while waiting, ex. by a region reset.
+        if (state == State.CANCELLED)
             return;
 
-        regenerateBlock();
+        BlockRegen plugin = BlockRegen.getInstance();
 
-        // Particle
-        if (preset.getRegenerationParticle() != null)
-            plugin.getParticleManager().displayParticle(preset.getRegenerationParticle(), block);
+        // Don't load the chunk just to regenerate, wait for it to load.
+        if (!isChunkLoaded()) {
+            plugin.getRegenerationManager().parkProcess(this);
+            return;
+        }
+
+        // Might have been parked before.
+        plugin.getRegenerationManager().removeProcess(this);
+
+        BlockRegenBlockRegenerationEvent blockRegenBlockRegenEvent = new BlockRegenBlockRegenerationEvent(this);
+        Bukkit.getPluginManager().callEvent(blockRegenBlockRegenEvent);
+
+        // Cancelled or reverted by a listener.
+        if (!STATE_UPDATER.compareAndSet(this, State.REGENERATING, State.DONE)) {
+            log.fine("Process " + this + " is not regenerating anymore, not placing.");
+            return;
+        }
+
+        if (blockRegenBlockRegenEvent.isCancelled()) {
+            log.fine("Regeneration of " + this + " got cancelled.");
+            return;
+        }
 
-        // Null the task
-        this.task = null;
+        regenerateBlock();
     }
 
     /**
-     * Simply regenerate the block. This method is unsafe to execute from async
-     * context.
+     * Simply regenerate the block. The placement is queued and applied on the main thread.
      */
     public void regenerateBlock() {
+        if (getRegenerateInto() == null) {
+            log.fine("Found no regeneration material for " + this);
+            return;
+        }
+
+        BlockRegen.getInstance().getRegenerationManager().getPlacementQueue().submit(this);
+    }
+
+    @Override
+    public void place() {
+        // Don't overwrite whatever replaced the block since.
+        if (state == State.CANCELLED)
+            return;
+
         BlockRegen plugin = BlockRegen.getInstance();
 
-        // Set type
-        XMaterial regenerateInto = getRegenerateInto();
-        if (regenerateInto == null) {
-            log.fine("Found no regeneration material for " + this);
+        // The chunk unloaded while the placement was queued.
+        if (!isChunkLoaded()) {
+            plugin.getRegenerationManager().parkProcess(this);
             return;
         }
 
-        Bukkit.getScheduler().runTask(plugin, () -> {
-            plugin.getVersionManager().getMethods().setType(block, regenerateInto);
-            this.originalData.place(block); // Apply data
-            log.fine("Regenerated " + this);
-        });
+        Block block = getBlock();
+        plugin.getVersionManager().getMethods().setType(block, getRegenerateInto());
+        this.originalData.place(block); // Apply data
+        log.fine("Regenerated " + this);
+
+        // Particle, once the block is actually there.
+        if (preset != null && preset.getRegenerationParticle() != null)
+            plugin.getParticleManager().displayParticle(preset.getRegenerationParticle(), block);
     }
 
     // Revert process to original material.
     public void revert() {
         stop();
 
+        // Cancelled processes leave the block be.
+        State current;
+        do {
+            current = this.state;
+
+            if (current == State.CANCELLED)
+                return;
+        } while (!STATE_UPDATER.compareAndSet(this, current, State.DONE));
+
         BlockRegen plugin = BlockRegen.getInstance();
 
         plugin.getRegenerationManager().removeProcess(this);
@@ -197,11 +326,24 @@ public class RegenerationProcess implements Runnable {
         revertBlock();
     }
 
+    /**
+     * Stop and unregister the process without regenerating the block, ex. when its region gets reset.
+     */
+    public void cancel() {
+        stop();
+
+        // Also stops the event or placement if it's already queued.
+        STATE_UPDATER.set(this, State.CANCELLED);
+
+        BlockRegen.getInstance().getRegenerationManager().removeProcess(this);
+    }
+
     public void stop() {
-        if (task != null) {
+        // Both the main and the timer thread stop, only one of them gets the handle.
+        RegenerationScheduler.Handle task = TASK_UPDATER.getAndSet(this, null);
+
+        if (task != null)
             task.cancel();
-            this.task = null;
-        }
     }
 
     public void revertBlock() {
@@ -214,20 +356,41 @@ public class RegenerationProcess implements Runnable {
 
         if (material != null) {
             if (synchronize) {
-                Bukkit.getScheduler().runTask(BlockRegen.getInstance(), () -> {
+                BlockRegen.getInstance().getRegenerationManager().getPlacementQueue().submit(() -> {
+                    if (!isChunkLoaded()) {
+                        parkRevert();
+                        return;
+                    }
+
+                    Block block = getBlock();
                     block.setType(material);
-                    originalData.place(this.block);
+                    originalData.place(block);
                     log.fine(String.format("Reverted block for %s", this));
                 });
             } else {
+                // Not worth loading the chunk on shutdown, the process is still stored and regenerates later.
+                if (!isChunkLoaded())
+                    return;
+
+                Block block = getBlock();
                 block.setType(material);
-                originalData.place(this.block);
+                originalData.place(block);
                 log.fine(String.format("Reverted block for %s", this));
             }
         }
     }
 
-    // Convert stored Location pointer to the Block at the location.
+    // Don't load the chunk just to revert. Processes that keep running regenerate once it loads,
+    // reverted ones are parked to place the original block instead. Main thread only.
+    private void parkRevert() {
+        if (state != State.DONE)
+            return;
+
+        this.regenerateInto = originalMaterial;
+        BlockRegen.getInstance().getRegenerationManager().parkProcess(this);
+    }
+
+    // Check the stored location points to a loaded world. The block itself is resolved lazily on the main thread.
     public boolean convertLocation() {
 
         if (location == null) {
@@ -235,15 +398,15 @@ public class RegenerationProcess implements Runnable {
             return false;
         }
 
-        Location location = this.location.toLocation();
+        World world = Bukkit.getWorld(location.getWorld());
 
-        if (location == null) {
+        if (world == null) {
             log.severe("Could not load location for process " + this + ", world is invalid or not loaded.");
             return false;
         }
 
-        // Prevent async chunk load.
-        Bukkit.getScheduler().runTask(BlockRegen.getInstance(), () -> this.block = location.getBlock());
+        // Share the name with the world instead of keeping a copy per process.
+        location.setWorld(world.getName());
         return true;
     }
 
@@ -259,25 +422,44 @@ public class RegenerationProcess implements Runnable {
         }
 
         this.preset = preset;
+        this.presetName = preset.getName();
+
+        if (regionName != null)
+            this.regionName = regionName.intern();
         return true;
     }
 
     public void updateTimeLeft(long timeLeft) {
         this.timeLeft = timeLeft;
-        if (timeLeft > 0)
-            start();
-        else
+        if (timeLeft > 0) {
+            if (start())
+                BlockRegen.getInstance().getRegenerationManager().processUpdated(this);
+        } else
             run();
     }
 
     public boolean isRunning() {
-        return task != null;
+        RegenerationScheduler.Handle task = this.task;
+        return task != null && !task.isCancelled();
     }
 
+    // Resolve the block, only call on the main thread.
+    @Nullable
     public Block getBlock() {
-        if (this.block == null)
-            convertLocation();
-        return block;
+        World world = Bukkit.getWorld(location.getWorld());
+        return world == null ? null : world.getBlockAt(location.getX(), location.getY(), location.getZ());
+    }
+
+    public String getWorldName() {
+        return location.getWorld();
+    }
+
+    /**
+     * @return Whether the chunk of this process is loaded. Never loads it.
+     */
+    public boolean isChunkLoaded() {
+        World world = Bukkit.getWorld(location.getWorld());
+        return world != null && world.isChunkLoaded(location.getX() >> 4, location.getZ() >> 4);
     }
 
     @Override
@@ -297,10 +479,11 @@ public class RegenerationProcess implements Runnable {
 
     @Override
     public String toString() {
-        return String.format("{task=%s; presetName=%s; block=%s; originalData=%s; originalMaterial=%s; regenerateInto=%s; replaceMaterial=%s; timeLeft=%d; regenerationTime=%d}",
-                task == null ? "null" : task.getTaskId(),
+        RegenerationScheduler.Handle task = this.task;
+        return String.format("{task=%s; presetName=%s; location=%s; originalData=%s; originalMaterial=%s; regenerateInto=%s; replaceMaterial=%s; timeLeft=%d; regenerationTime=%d}",
+                task == null ? "null" : task.getDeadline(),
                 presetName,
-                block == null ? "null" : LocationUtil.locationToString(block.getLocation()),
+                location,
                 originalData,
                 originalMaterial,
                 getRegenerateInto(),
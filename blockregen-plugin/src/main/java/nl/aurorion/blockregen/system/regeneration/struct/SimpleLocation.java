@@ -7,11 +7,21 @@ import org.bukkit.World;
 
 import java.util.Objects;
 
+/**
+ * Block location of a process. Coordinates are stored as ints, older data with doubles still loads fine.
+ */
 @Data
 public class SimpleLocation {
 
     private String world;
-    private double x, y, z;
+    private int x, y, z;
+
+    public SimpleLocation(String world, int x, int y, int z) {
+        this.world = world;
+        this.x = x;
+        this.y = y;
+        this.z = z;
+    }
 
     public SimpleLocation(Location location) {
 
@@ -22,9 +32,9 @@ public class SimpleLocation {
             throw new IllegalArgumentException("Location world cannot be null");
 
         this.world = location.getWorld().getName();
-        this.x = location.getX();
-        this.y = location.getY();
-        this.z = location.getZ();
+        this.x = location.getBlockX();
+        this.y = location.getBlockY();
+        this.z = location.getBlockZ();
     }
 
     @Override
@@ -32,9 +42,9 @@ public class SimpleLocation {
         if (this == o) return true;
         if (o == null || getClass() != o.getClass()) return false;
         SimpleLocation that = (SimpleLocation) o;
-        return Double.compare(that.x, x) == 0 &&
-                Double.compare(that.y, y) == 0 &&
-                Double.compare(that.z, z) == 0 &&
+        return that.x == x &&
+                that.y == y &&
+                that.z == z &&
                 Objects.equals(world, that.world);
     }
 
@@ -43,8 +53,20 @@ public class SimpleLocation {
         return Objects.hash(world, x, y, z);
     }
 
+    public int getBlockX() {
+        return x;
+    }
+
+    public int getBlockY() {
+        return y;
+    }
+
+    public int getBlockZ() {
+        return z;
+    }
+
     public Location toLocation() {
         World world = Bukkit.getWorld(this.world);
         return world == null ? null : new Location(world, x, y, z);
     }
-}
\ No newline at end of file
+}
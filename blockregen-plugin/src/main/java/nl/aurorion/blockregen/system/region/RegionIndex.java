@@ -0,0 +1,182 @@
+package nl.aurorion.blockregen.system.region;
+
+import nl.aurorion.blockregen.system.region.shape.Coverage;
+import nl.aurorion.blockregen.system.region.shape.RegionShape;
+import nl.aurorion.blockregen.system.region.struct.RegenerationRegion;
+import nl.aurorion.blockregen.util.LocationUtil;
+import nl.aurorion.blockregen.util.LongObjectMap;
+import org.bukkit.Location;
+import org.bukkit.World;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Chunk grid of regions per world. Each region is put into a bucket for every chunk its shape reaches,
+ * a lookup only checks the regions in the bucket of the location.
+ * <p>
+ * Buckets are kept sorted by priority, highest first and by name on ties, so the first match wins.
+ * <p>
+ * Regions covering more than {@link #MAX_CHUNKS} chunks or without a world are checked on every lookup instead.
+ * Not thread-safe, used from the main thread.
+ */
+public class RegionIndex {
+
+    // 64x64 chunks, larger regions would fill too many buckets.
+    private static final int MAX_CHUNKS = 4096;
+
+    // Highest priority first, names keep the order stable.
+    private static final Comparator<RegenerationRegion> ORDER = Comparator.comparingInt(RegenerationRegion::getPriority).reversed()
+            .thenComparing(RegenerationRegion::getName);
+
+    private final Map<String, LongObjectMap<List<RegenerationRegion>>> grid = new HashMap<>();
+
+    // Checked on every lookup.
+    private final List<RegenerationRegion> unindexed = new ArrayList<>();
+
+    public void add(@NotNull RegenerationRegion region) {
+        World world = region.getMax().getWorld();
+
+        RegionShape shape = region.getShape();
+
+        int minX = shape.getMinX() >> 4;
+        int minZ = shape.getMinZ() >> 4;
+        int maxX = shape.getMaxX() >> 4;
+        int maxZ = shape.getMaxZ() >> 4;
+
+        if (world == null || (long) (maxX - minX + 1) * (maxZ - minZ + 1) > MAX_CHUNKS) {
+            insert(unindexed, region);
+            return;
+        }
+
+        LongObjectMap<List<RegenerationRegion>> buckets = grid.computeIfAbsent(world.getName(), k -> new LongObjectMap<>());
+
+        for (int x = minX; x <= maxX; x++) {
+            for (int z = minZ; z <= maxZ; z++) {
+                // Parts of the bounding box the shape doesn't reach.
+                if (region.getCoverage(x, z) == Coverage.OUTSIDE)
+                    continue;
+
+                long key = LocationUtil.chunkKey(x, z);
+
+                List<RegenerationRegion> bucket = buckets.get(key);
+
+                if (bucket == null) {
+                    bucket = new ArrayList<>(1);
+                    buckets.put(key, bucket);
+                }
+
+                insert(bucket, region);
+            }
+        }
+    }
+
+    private static void insert(List<RegenerationRegion> list, RegenerationRegion region) {
+        int index = Collections.binarySearch(list, region, ORDER);
+        list.add(index < 0 ? -index - 1 : index, region);
+    }
+
+    public void remove(@NotNull RegenerationRegion region) {
+        if (unindexed.remove(region))
+            return;
+
+        World world = region.getMax().getWorld();
+
+        if (world == null)
+            return;
+
+        LongObjectMap<List<RegenerationRegion>> buckets = grid.get(world.getName());
+
+        if (buckets == null)
+            return;
+
+        RegionShape shape = region.getShape();
+
+        for (int x = shape.getMinX() >> 4; x <= shape.getMaxX() >> 4; x++) {
+            for (int z = shape.getMinZ() >> 4; z <= shape.getMaxZ() >> 4; z++) {
+                long key = LocationUtil.chunkKey(x, z);
+
+                List<RegenerationRegion> bucket = buckets.get(key);
+
+                if (bucket != null && bucket.remove(region) && bucket.isEmpty())
+                    buckets.remove(key);
+            }
+        }
+
+        if (buckets.isEmpty())
+            grid.remove(world.getName());
+    }
+
+    public void clear() {
+        grid.clear();
+        unindexed.clear();
+    }
+
+    /**
+     * @return Region with the highest priority containing the location.
+     */
+    @Nullable
+    public RegenerationRegion find(@NotNull Location location) {
+        RegenerationRegion indexed = first(bucket(location), location);
+        RegenerationRegion other = first(unindexed, location);
+
+        if (indexed == null)
+            return other;
+        return other == null || ORDER.compare(indexed, other) <= 0 ? indexed : other;
+    }
+
+    /**
+     * @return All regions containing the location, highest priority first.
+     */
+    @NotNull
+    public List<RegenerationRegion> findAll(@NotNull Location location) {
+        List<RegenerationRegion> bucket = bucket(location);
+
+        List<RegenerationRegion> regions = new ArrayList<>();
+
+        // Merge the two sorted lists.
+        int i = 0, j = 0;
+        while (i < bucket.size() || j < unindexed.size()) {
+            RegenerationRegion region;
+            if (j >= unindexed.size() || (i < bucket.size() && ORDER.compare(bucket.get(i), unindexed.get(j)) <= 0)) {
+                region = bucket.get(i++);
+            } else {
+                region = unindexed.get(j++);
+            }
+
+            if (region.contains(location))
+                regions.add(region);
+        }
+        return regions;
+    }
+
+    private List<RegenerationRegion> bucket(Location location) {
+        World world = location.getWorld();
+
+        if (world == null)
+            return Collections.emptyList();
+
+        LongObjectMap<List<RegenerationRegion>> buckets = grid.get(world.getName());
+
+        if (buckets == null)
+            return Collections.emptyList();
+
+        List<RegenerationRegion> bucket = buckets.get(LocationUtil.chunkKey(location.getBlockX() >> 4, location.getBlockZ() >> 4));
+        return bucket == null ? Collections.emptyList() : bucket;
+    }
+
+    @Nullable
+    private static RegenerationRegion first(List<RegenerationRegion> regions, Location location) {
+        for (RegenerationRegion region : regions) {
+            if (region.contains(location))
+                return region;
+        }
+        return null;
+    }
+}
@@ -4,18 +4,35 @@ import com.google.common.base.Strings;
 import lombok.extern.java.Log;
 import nl.aurorion.blockregen.BlockRegen;
 import nl.aurorion.blockregen.system.preset.struct.BlockPreset;
+import nl.aurorion.blockregen.system.region.reset.PresetTemplate;
+import nl.aurorion.blockregen.system.region.reset.RegionResetTask;
+import nl.aurorion.blockregen.system.region.reset.RegionSnapshot;
+import nl.aurorion.blockregen.system.region.reset.RegionTemplate;
+import nl.aurorion.blockregen.system.region.reset.SnapshotTask;
 import nl.aurorion.blockregen.system.region.struct.RawRegion;
 import nl.aurorion.blockregen.system.region.struct.RegenerationRegion;
 import nl.aurorion.blockregen.system.region.struct.RegionSelection;
 import nl.aurorion.blockregen.util.LocationUtil;
+import org.bukkit.Bukkit;
 import org.bukkit.Location;
-import org.bukkit.configuration.ConfigurationSection;
-import org.bukkit.configuration.file.FileConfiguration;
+import org.bukkit.World;
+import org.bukkit.command.CommandSender;
 import org.bukkit.entity.Player;
+import org.bukkit.scheduler.BukkitTask;
 import org.jetbrains.annotations.NotNull;
 import org.jetbrains.annotations.Nullable;
 
+import java.io.IOException;
+import java.nio.file.DirectoryNotEmptyException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
 import java.util.*;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.logging.Level;
 import java.util.stream.Collectors;
 
 @Log
@@ -25,11 +42,38 @@ public class RegionManager {
 
     private final Map<String, RegenerationRegion> loadedRegions = new HashMap<>();
 
+    // Spatial lookup of the loaded regions, updated together with them.
+    private final RegionIndex index = new RegionIndex();
+
     // Set of regions that failed to load.
     private final Set<RawRegion> failedRegions = new HashSet<>();
 
+    // Ticks to wait for more edits before writing, bursts end up in a single write.
+    private static final long SAVE_DELAY = 40L;
+
     private final Map<UUID, RegionSelection> selections = new HashMap<>();
 
+    private BukkitTask saveTask;
+
+    // Running resets by region name.
+    private final Map<String, RegionResetTask> resets = new HashMap<>();
+
+    // Opened snapshots and running captures by region name.
+    private final Map<String, RegionSnapshot> snapshots = new HashMap<>();
+    private final Map<String, SnapshotTask> captures = new HashMap<>();
+
+    // Replaced or removed snapshots still used by a running reset.
+    private final List<RegionSnapshot> retired = new ArrayList<>();
+
+    private static final String SNAPSHOT_EXTENSION = ".snapshot";
+
+    // Bumped when regions are added or removed.
+    private int changes = 0;
+
+    // Change counters of the manager and each region at the last save or load.
+    private int savedChanges = 0;
+    private final Map<String, Integer> savedRegionChanges = new HashMap<>();
+
     public RegionManager(BlockRegen plugin) {
         this.plugin = plugin;
     }
@@ -70,6 +114,10 @@ public class RegionManager {
         Location min = new Location(first.getWorld(), Math.min(first.getX(), second.getX()), Math.min(first.getY(), second.getY()), Math.min(first.getZ(), second.getZ()));
         Location max = new Location(first.getWorld(), Math.max(first.getX(), second.getX()), Math.max(first.getY(), second.getY()), Math.max(first.getZ(), second.getZ()));
 
+        // Polygons, cylinders and spheres from WorldEdit.
+        if (selection.getShape() != null)
+            return new RegenerationRegion(name, min, max, selection.getShape());
+
         return new RegenerationRegion(name, min, max);
     }
 
@@ -94,52 +142,52 @@ public class RegionManager {
 
     public void load() {
         this.loadedRegions.clear();
-        plugin.getFiles().getRegions().load();
-
-        FileConfiguration regions = plugin.getFiles().getRegions().getFileConfiguration();
-
-        ConfigurationSection parentSection = regions.getConfigurationSection("Regions");
-
-        if (parentSection != null) {
-            for (String name : parentSection.getKeys(false)) {
-
-                ConfigurationSection section = parentSection.getConfigurationSection(name);
+        this.index.clear();
 
-                // Shouldn't happen
-                if (section == null) {
-                    continue;
-                }
-
-                String minString = section.getString("Min");
-                String maxString = section.getString("Max");
-
-                boolean all = section.getBoolean("All", true);
-                List<String> presets = section.getStringList("Presets");
+        List<RawRegion> rawRegions;
+        try {
+            rawRegions = plugin.getStorage().loadRegions();
+        } catch (IOException e) {
+            log.log(Level.SEVERE, "Could not load regions", e);
+            return;
+        }
 
-                RawRegion rawRegion = new RawRegion(name, minString, maxString, presets, all);
+        for (RawRegion rawRegion : rawRegions) {
+            String name = rawRegion.getName();
 
-                if (Strings.isNullOrEmpty(minString) || Strings.isNullOrEmpty(maxString)) {
-                    this.failedRegions.add(rawRegion);
-                    log.severe("Could not load region " + name + ", invalid location strings.");
-                    continue;
-                }
+            String minString = rawRegion.getMin();
+            String maxString = rawRegion.getMax();
 
-                if (!LocationUtil.isLocationLoaded(minString) || !LocationUtil.isLocationLoaded(maxString)) {
-                    rawRegion.setReattempt(true);
-                    this.failedRegions.add(rawRegion);
-                    log.info("World for region " + name + " is not loaded. Reattempting after complete server load.");
-                    continue;
-                }
+            if (Strings.isNullOrEmpty(minString) || Strings.isNullOrEmpty(maxString)) {
+                this.failedRegions.add(rawRegion);
+                log.severe("Could not load region " + name + ", invalid location strings.");
+                continue;
+            }
 
-                loadRegion(rawRegion);
+            if (!LocationUtil.isLocationLoaded(minString) || !LocationUtil.isLocationLoaded(maxString)) {
+                rawRegion.setReattempt(true);
+                this.failedRegions.add(rawRegion);
+                log.info("World for region " + name + " is not loaded. Reattempting after complete server load.");
+                continue;
             }
+
+            // Keep it so it's saved back.
+            if (!loadRegion(rawRegion))
+                this.failedRegions.add(rawRegion);
         }
 
+        markSaved();
         log.info("Loaded " + this.loadedRegions.size() + " region(s)...");
     }
 
     private boolean loadRegion(RawRegion rawRegion) {
-        RegenerationRegion region = rawRegion.build();
+        RegenerationRegion region;
+        try {
+            region = rawRegion.build();
+        } catch (IllegalArgumentException e) {
+            log.severe("Could not load region " + rawRegion.getName() + ": " + e.getMessage());
+            return false;
+        }
 
         if (region == null) {
             log.warning("Could not load region " + rawRegion.getName() + ", world " + rawRegion.getMax() + " still not loaded.");
@@ -159,7 +207,7 @@ public class RegionManager {
 
         region.setAll(rawRegion.isAll());
 
-        this.loadedRegions.put(rawRegion.getName(), region);
+        put(region);
         log.fine("Loaded region " + rawRegion.getName());
         return true;
     }
@@ -185,40 +233,87 @@ public class RegionManager {
         log.info("Reloaded " + this.loadedRegions.size() + " region(s)...");
     }
 
-    public void save() {
-        FileConfiguration regions = plugin.getFiles().getRegions().getFileConfiguration();
-
-        regions.set("Regions", null);
-
-        ConfigurationSection section = ensureRegionsSection(regions);
+    /**
+     * Save the regions off the main thread after a short delay. Edits made meanwhile are included in the same write.
+     */
+    public synchronized void save() {
+        if (saveTask != null)
+            return;
 
-        for (RawRegion rawRegion : new HashSet<>(this.failedRegions)) {
-            ConfigurationSection regionSection = section.createSection(rawRegion.getName());
+        this.saveTask = Bukkit.getScheduler().runTaskLater(plugin, () -> {
+            synchronized (this) {
+                this.saveTask = null;
+            }
+            write();
+        }, SAVE_DELAY);
+    }
 
-            regionSection.set("Min", rawRegion.getMin());
-            regionSection.set("Max", rawRegion.getMax());
+    /**
+     * Write a pending save right away and wait for it at most the given time. Has to be called from the main thread.
+     */
+    public void flush(long timeout, @NotNull TimeUnit unit) {
+        synchronized (this) {
+            if (saveTask != null) {
+                saveTask.cancel();
+                this.saveTask = null;
+            }
+        }
 
-            regionSection.set("All", rawRegion.isAll());
-            regionSection.set("Presets", rawRegion.getBlockPresets());
+        try {
+            write().get(timeout, unit);
+        } catch (TimeoutException e) {
+            log.warning("Saving regions did not finish within " + unit.toSeconds(timeout) + " seconds.");
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (ExecutionException e) {
+            // Logged by the write.
         }
+    }
+
+    // Snapshot the regions on the main thread, serialize and write them on the persistence thread.
+    private CompletableFuture<Void> write() {
+        List<RawRegion> regions = new ArrayList<>(this.failedRegions);
 
         for (RegenerationRegion regenerationRegion : new HashSet<>(this.loadedRegions.values())) {
-            ConfigurationSection regionSection = section.createSection(regenerationRegion.getName());
+            regions.add(RawRegion.of(regenerationRegion));
+        }
 
-            regionSection.set("Min", LocationUtil.locationToString(regenerationRegion.getMin()));
-            regionSection.set("Max", LocationUtil.locationToString(regenerationRegion.getMax()));
+        List<RawRegion> snapshot = Collections.unmodifiableList(regions);
 
-            regionSection.set("All", regenerationRegion.isAll());
-            regionSection.set("Presets", new ArrayList<>(regenerationRegion.getPresets()));
-        }
+        markSaved();
 
-        plugin.getFiles().getRegions().save();
+        return plugin.getPersistenceExecutor().submit("regions", () -> {
+            plugin.getStorage().saveRegions(snapshot);
+            log.fine("Saved " + snapshot.size() + " region(s)...");
+        }).whenComplete((v, e) -> {
+            if (e != null)
+                log.log(Level.SEVERE, "Could not save regions", e);
+        });
+    }
 
-        log.fine("Saved " + (this.loadedRegions.size() + this.failedRegions.size()) + " region(s)...");
+    private void markSaved() {
+        this.savedChanges = changes;
+        this.savedRegionChanges.clear();
+        for (RegenerationRegion region : this.loadedRegions.values()) {
+            savedRegionChanges.put(region.getName(), region.getChanges());
+        }
     }
 
-    private ConfigurationSection ensureRegionsSection(FileConfiguration configuration) {
-        return configuration.contains("Regions") ? configuration.getConfigurationSection("Regions") : configuration.createSection("Regions");
+    /**
+     * Has to be called from the main thread.
+     *
+     * @return True if regions were added, removed or modified since the last save.
+     */
+    public boolean hasChanges() {
+        if (changes != savedChanges)
+            return true;
+
+        for (RegenerationRegion region : this.loadedRegions.values()) {
+            Integer saved = savedRegionChanges.get(region.getName());
+            if (saved == null || saved != region.getChanges())
+                return true;
+        }
+        return false;
     }
 
     public boolean exists(String name) {
@@ -230,26 +325,316 @@ public class RegionManager {
     }
 
     public void removeRegion(String name) {
-        this.loadedRegions.remove(name);
+        RegenerationRegion region = this.loadedRegions.remove(name);
+
+        if (region != null) {
+            index.remove(region);
+            changes++;
+            save();
+
+            // Don't keep rebuilding a region that's gone.
+            RegionResetTask reset = resets.remove(name);
+            if (reset != null)
+                reset.cancel();
+
+            removeSnapshot(name);
+        }
     }
 
+    /**
+     * @return Region with the highest priority containing the location.
+     */
     @Nullable
     public RegenerationRegion getRegion(@Nullable Location location) {
         if (location == null) return null;
 
-        for (RegenerationRegion region : this.loadedRegions.values()) {
-            if (region.contains(location))
-                return region;
-        }
-        return null;
+        return index.find(location);
+    }
+
+    /**
+     * @return All regions containing the location, highest priority first.
+     */
+    @NotNull
+    public List<RegenerationRegion> getRegions(@NotNull Location location) {
+        return index.findAll(location);
+    }
+
+    public void setPriority(@NotNull RegenerationRegion region, int priority) {
+        boolean loaded = this.loadedRegions.get(region.getName()) == region;
+
+        // Reinsert so the buckets stay sorted.
+        if (loaded)
+            index.remove(region);
+
+        region.setPriority(priority);
+
+        if (loaded)
+            index.add(region);
+        save();
     }
 
     public void addRegion(@NotNull RegenerationRegion region) {
-        this.loadedRegions.put(region.getName(), region);
+        put(region);
+        changes++;
         log.fine("Added region " + region.getName());
         save();
     }
 
+    private void put(RegenerationRegion region) {
+        RegenerationRegion previous = this.loadedRegions.put(region.getName(), region);
+
+        if (previous != null)
+            index.remove(previous);
+        index.add(region);
+    }
+
+    // ---- Reset
+
+    /**
+     * @return Template to reset the region to, its snapshot if there's one, null if there's none.
+     */
+    @Nullable
+    public RegionTemplate getTemplate(@NotNull RegenerationRegion region) {
+        RegionSnapshot snapshot = getSnapshot(region);
+
+        if (snapshot != null)
+            return snapshot;
+
+        List<BlockPreset> presets = new ArrayList<>();
+
+        for (String presetName : region.getPresets()) {
+            BlockPreset preset = plugin.getPresetManager().getPreset(presetName);
+            if (preset != null)
+                presets.add(preset);
+        }
+
+        return presets.isEmpty() ? null : new PresetTemplate(plugin, presets);
+    }
+
+    /**
+     * Rebuild every block of the region from the template over the following ticks.
+     * Processes inside the region are cancelled first. Has to be called from the main thread.
+     *
+     * @param sender Receives progress reports, can be null.
+     * @return The started reset, null if the region is being reset already or its world is not loaded.
+     */
+    @Nullable
+    public RegionResetTask resetRegion(@NotNull RegenerationRegion region, @NotNull RegionTemplate template, @Nullable CommandSender sender) {
+        RegionResetTask running = resets.get(region.getName());
+
+        if (running != null && running.isRunning())
+            return null;
+
+        World world = region.getMax().getWorld();
+
+        if (world == null)
+            return null;
+
+        int cancelled = plugin.getRegenerationManager().cancelProcesses(region);
+        log.fine("Cancelled " + cancelled + " process(es) in region " + region.getName() + " before its reset.");
+
+        RegionResetTask task = new RegionResetTask(plugin, region, world, template, sender, done -> closeRetired());
+        resets.put(region.getName(), task);
+        task.start();
+        return task;
+    }
+
+    @Nullable
+    public RegionResetTask getReset(@NotNull String name) {
+        return resets.get(name);
+    }
+
+    public void cancelResets() {
+        resets.values().forEach(RegionResetTask::cancel);
+        resets.clear();
+    }
+
+    // ---- Snapshots
+
+    // Every capture goes to a new file named by the time it started, the latest one is used.
+    // Mapped files can't be replaced or deleted on some systems.
+    private Path getSnapshotDirectory(@NotNull String name) {
+        return plugin.getDataFolder().toPath().resolve("Snapshots").resolve(name);
+    }
+
+    private static long getSnapshotTime(@NotNull Path path) {
+        String fileName = path.getFileName().toString();
+        try {
+            return Long.parseLong(fileName.substring(0, fileName.length() - SNAPSHOT_EXTENSION.length()));
+        } catch (NumberFormatException e) {
+            return -1;
+        }
+    }
+
+    @Nullable
+    private static Path findLatestSnapshot(@NotNull Path directory) throws IOException {
+        if (!Files.isDirectory(directory))
+            return null;
+
+        Path latest = null;
+        long latestTime = -1;
+
+        try (DirectoryStream<Path> stream = Files.newDirectoryStream(directory, "*" + SNAPSHOT_EXTENSION)) {
+            for (Path path : stream) {
+                long time = getSnapshotTime(path);
+
+                if (time > latestTime) {
+                    latest = path;
+                    latestTime = time;
+                }
+            }
+        }
+        return latest;
+    }
+
+    /**
+     * @return Snapshot of the region, null if it wasn't captured or was captured in another world.
+     */
+    @Nullable
+    public RegionSnapshot getSnapshot(@NotNull RegenerationRegion region) {
+        RegionSnapshot snapshot = snapshots.get(region.getName());
+
+        if (snapshot == null) {
+            Path directory = getSnapshotDirectory(region.getName());
+
+            try {
+                Path path = findLatestSnapshot(directory);
+
+                if (path == null)
+                    return null;
+
+                snapshot = RegionSnapshot.open(plugin, path);
+            } catch (IOException e) {
+                log.log(Level.WARNING, "Could not open the snapshot of region " + region.getName(), e);
+                return null;
+            }
+            snapshots.put(region.getName(), snapshot);
+
+            // Leftovers of earlier captures.
+            deleteSnapshots(directory, false);
+        }
+
+        World world = region.getMax().getWorld();
+        return world != null && world.getName().equals(snapshot.getWorldName()) ? snapshot : null;
+    }
+
+    /**
+     * Capture the current blocks of the region to reset it to later. Replaces the previous snapshot once done.
+     *
+     * @param sender Receives progress reports, can be null.
+     * @return The started capture, null if the region is being captured already or its world is not loaded.
+     */
+    @Nullable
+    public SnapshotTask snapshotRegion(@NotNull RegenerationRegion region, @Nullable CommandSender sender) {
+        SnapshotTask running = captures.get(region.getName());
+
+        if (running != null && running.isRunning())
+            return null;
+
+        World world = region.getMax().getWorld();
+
+        if (world == null)
+            return null;
+
+        Path path = getSnapshotDirectory(region.getName()).resolve(System.currentTimeMillis() + SNAPSHOT_EXTENSION);
+
+        // The new one is opened on next use.
+        SnapshotTask task = new SnapshotTask(plugin, region, world, path, sender, done -> retireSnapshot(done.getRegion().getName()));
+        captures.put(region.getName(), task);
+        task.start();
+        return task;
+    }
+
+    private void removeSnapshot(String name) {
+        SnapshotTask capture = captures.remove(name);
+
+        if (capture != null)
+            capture.cancel();
+
+        retireSnapshot(name);
+
+        deleteSnapshots(getSnapshotDirectory(name), true);
+    }
+
+    // Stop using the opened snapshot of the region, it's closed once no reset uses it anymore.
+    private void retireSnapshot(String name) {
+        RegionSnapshot snapshot = snapshots.remove(name);
+
+        if (snapshot == null)
+            return;
+
+        retired.add(snapshot);
+        closeRetired();
+    }
+
+    private void closeRetired() {
+        for (Iterator<RegionSnapshot> it = retired.iterator(); it.hasNext(); ) {
+            RegionSnapshot snapshot = it.next();
+
+            boolean used = false;
+            for (RegionResetTask reset : resets.values()) {
+                if (reset.isRunning() && reset.getTemplate() == snapshot)
+                    used = true;
+            }
+
+            if (used)
+                continue;
+
+            it.remove();
+            snapshot.close();
+            deleteSnapshots(snapshot.getPath().getParent(), false);
+        }
+    }
+
+    /**
+     * Delete the snapshot files in the directory that are not open, all of them or all but the latest.
+     * Files that can't be deleted yet are tried again next time.
+     */
+    private void deleteSnapshots(Path directory, boolean all) {
+        Set<Path> open = new HashSet<>();
+        for (RegionSnapshot snapshot : snapshots.values()) {
+            open.add(snapshot.getPath());
+        }
+        for (RegionSnapshot snapshot : retired) {
+            open.add(snapshot.getPath());
+        }
+
+        plugin.getPersistenceExecutor().execute(() -> {
+            try {
+                Path latest = all ? null : findLatestSnapshot(directory);
+
+                if (!Files.isDirectory(directory))
+                    return;
+
+                try (DirectoryStream<Path> stream = Files.newDirectoryStream(directory, "*" + SNAPSHOT_EXTENSION)) {
+                    for (Path path : stream) {
+                        if (path.equals(latest) || open.contains(path))
+                            continue;
+
+                        try {
+                            Files.deleteIfExists(path);
+                        } catch (IOException e) {
+                            // Still mapped, ex. on Windows until the buffer is collected.
+                            log.fine("Could not delete snapshot " + path + " yet: " + e.getMessage());
+                        }
+                    }
+                }
+
+                if (all)
+                    Files.deleteIfExists(directory);
+            } catch (DirectoryNotEmptyException e) {
+                log.fine("Snapshot directory " + directory + " is not empty yet.");
+            } catch (IOException e) {
+                log.log(Level.WARNING, "Could not remove snapshots in " + directory, e);
+            }
+        });
+    }
+
+    public void cancelSnapshots() {
+        captures.values().forEach(SnapshotTask::cancel);
+        captures.clear();
+    }
+
     public Map<String, RegenerationRegion> getLoadedRegions() {
         return Collections.unmodifiableMap(loadedRegions);
     }
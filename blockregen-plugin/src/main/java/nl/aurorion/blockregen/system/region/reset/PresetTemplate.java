@@ -0,0 +1,38 @@
+package nl.aurorion.blockregen.system.region.reset;
+
+import com.cryptomorin.xseries.XMaterial;
+import nl.aurorion.blockregen.BlockRegen;
+import nl.aurorion.blockregen.system.preset.struct.BlockPreset;
+import org.bukkit.block.Block;
+import org.jetbrains.annotations.NotNull;
+
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * Fills the region with what its presets regenerate into, picking a preset at random for every block.
+ */
+public class PresetTemplate implements RegionTemplate {
+
+    private final BlockRegen plugin;
+
+    private final List<BlockPreset> presets;
+
+    public PresetTemplate(BlockRegen plugin, @NotNull List<BlockPreset> presets) {
+        if (presets.isEmpty())
+            throw new IllegalArgumentException("Preset template needs at least one preset.");
+
+        this.plugin = plugin;
+        this.presets = presets;
+    }
+
+    @Override
+    public void apply(@NotNull Block block) {
+        BlockPreset preset = presets.get(ThreadLocalRandom.current().nextInt(presets.size()));
+
+        XMaterial material = preset.getRegenMaterial().get();
+
+        if (material != null)
+            plugin.getVersionManager().getMethods().setType(block, material);
+    }
+}
@@ -0,0 +1,229 @@
+package nl.aurorion.blockregen.system.region.reset;
+
+import lombok.Getter;
+import lombok.extern.java.Log;
+import nl.aurorion.blockregen.BlockRegen;
+import nl.aurorion.blockregen.Message;
+import nl.aurorion.blockregen.system.region.shape.Coverage;
+import nl.aurorion.blockregen.system.region.shape.RegionShape;
+import nl.aurorion.blockregen.system.region.struct.RegenerationRegion;
+import nl.aurorion.blockregen.util.LocationUtil;
+import org.bukkit.Bukkit;
+import org.bukkit.World;
+import org.bukkit.command.CommandSender;
+import org.bukkit.entity.Player;
+import org.bukkit.scheduler.BukkitTask;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+import java.util.logging.Level;
+
+/**
+ * Rebuilds every block of a region from a template in time-sliced batches on the main thread.
+ * <p>
+ * Chunks are reset one after another, blocks of a chunk go bottom to top. Chunks the shape covers fully skip the per block test.
+ */
+@Log
+public class RegionResetTask implements Runnable {
+
+    // Seconds between progress reports.
+    private static final long REPORT_INTERVAL = 5;
+
+    // Blocks between checks of the time budget.
+    private static final int CHECK_INTERVAL = 64;
+
+    private final BlockRegen plugin;
+
+    @Getter
+    private final RegenerationRegion region;
+
+    @Getter
+    private final RegionTemplate template;
+
+    private final World world;
+
+    @Nullable
+    private final CommandSender sender;
+
+    private final long maxNanos;
+
+    // Chunks the shape reaches, in order.
+    private final int[][] chunks;
+
+    private final int minY, maxY;
+
+    private int chunkIndex = 0;
+
+    // Cursor within the current chunk.
+    private boolean inChunk = false;
+    private Coverage coverage;
+    private int chunkMinX, chunkMinZ, chunkMaxX, chunkMaxZ;
+    private int x, y, z;
+
+    @Getter
+    private long blocks = 0;
+
+    private long started;
+
+    private long lastReport;
+
+    private BukkitTask task;
+
+    // Called once the reset stops, finished or cancelled.
+    private final Consumer<RegionResetTask> callback;
+
+    public RegionResetTask(BlockRegen plugin, @NotNull RegenerationRegion region, @NotNull World world, @NotNull RegionTemplate template,
+                           @Nullable CommandSender sender, @NotNull Consumer<RegionResetTask> callback) {
+        this.plugin = plugin;
+        this.region = region;
+        this.world = world;
+        this.template = template;
+        this.sender = sender;
+        this.callback = callback;
+        this.maxNanos = TimeUnit.MILLISECONDS.toNanos(Math.max(1, plugin.getConfig().getInt("Region-Reset.Max-Time-Per-Tick", 10)));
+
+        RegionShape shape = region.getShape();
+
+        this.minY = Math.max(shape.getMinY(), LocationUtil.getMinHeight(world));
+        this.maxY = Math.min(shape.getMaxY(), world.getMaxHeight() - 1);
+
+        List<int[]> chunks = new ArrayList<>();
+
+        // Nothing to do if the shape is outside of the world height.
+        for (int chunkX = shape.getMinX() >> 4; minY <= maxY && chunkX <= shape.getMaxX() >> 4; chunkX++) {
+            for (int chunkZ = shape.getMinZ() >> 4; chunkZ <= shape.getMaxZ() >> 4; chunkZ++) {
+                if (region.getCoverage(chunkX, chunkZ) != Coverage.OUTSIDE)
+                    chunks.add(new int[]{chunkX, chunkZ});
+            }
+        }
+        this.chunks = chunks.toArray(new int[0][]);
+    }
+
+    public void start() {
+        if (task != null)
+            return;
+
+        this.started = System.currentTimeMillis();
+        this.lastReport = started;
+        this.task = Bukkit.getScheduler().runTaskTimer(plugin, this, 1L, 1L);
+    }
+
+    public void cancel() {
+        if (task == null)
+            return;
+
+        task.cancel();
+        this.task = null;
+
+        callback.accept(this);
+    }
+
+    public boolean isDone() {
+        return chunkIndex >= chunks.length;
+    }
+
+    public boolean isRunning() {
+        return task != null;
+    }
+
+    /**
+     * @return Progress in percent, by chunks.
+     */
+    public int getProgress() {
+        return chunks.length == 0 ? 100 : chunkIndex * 100 / chunks.length;
+    }
+
+    @Override
+    public void run() {
+        long start = System.nanoTime();
+
+        RegionShape shape = region.getShape();
+
+        int count = 0;
+        while (!isDone()) {
+            if (!inChunk)
+                enterChunk();
+
+            if (coverage == Coverage.INSIDE || shape.contains(x, y, z)) {
+                try {
+                    template.apply(world.getBlockAt(x, y, z));
+                    blocks++;
+                } catch (Exception e) {
+                    log.log(Level.SEVERE, String.format("Could not reset block %d;%d;%d in region %s", x, y, z, region.getName()), e);
+                }
+            }
+
+            advance();
+
+            if (++count % CHECK_INTERVAL == 0 && System.nanoTime() - start >= maxNanos)
+                break;
+        }
+
+        long now = System.currentTimeMillis();
+
+        if (isDone()) {
+            cancel();
+            log.info(String.format("Reset %d block(s) of region %s in %.1fs.", blocks, region.getName(), (now - started) / 1000.0));
+            report(Message.RESET_DONE.get()
+                    .replace("%region%", region.getName())
+                    .replace("%blocks%", String.valueOf(blocks))
+                    .replace("%time%", String.format("%.1f", (now - started) / 1000.0)));
+            return;
+        }
+
+        if (now - lastReport >= TimeUnit.SECONDS.toMillis(REPORT_INTERVAL)) {
+            report(Message.RESET_PROGRESS.get()
+                    .replace("%region%", region.getName())
+                    .replace("%progress%", String.valueOf(getProgress())));
+            this.lastReport = now;
+        }
+    }
+
+    // Load the next chunk and put the cursor on its first block.
+    private void enterChunk() {
+        int[] chunk = chunks[chunkIndex];
+
+        // Loads or generates it if needed, counts towards the budget.
+        world.getChunkAt(chunk[0], chunk[1]);
+
+        RegionShape shape = region.getShape();
+
+        this.coverage = region.getCoverage(chunk[0], chunk[1]);
+        this.chunkMinX = Math.max(chunk[0] << 4, shape.getMinX());
+        this.chunkMinZ = Math.max(chunk[1] << 4, shape.getMinZ());
+        this.chunkMaxX = Math.min((chunk[0] << 4) + 15, shape.getMaxX());
+        this.chunkMaxZ = Math.min((chunk[1] << 4) + 15, shape.getMaxZ());
+
+        this.x = chunkMinX;
+        this.y = minY;
+        this.z = chunkMinZ;
+        this.inChunk = true;
+    }
+
+    private void advance() {
+        if (++z <= chunkMaxZ)
+            return;
+        this.z = chunkMinZ;
+
+        if (++x <= chunkMaxX)
+            return;
+        this.x = chunkMinX;
+
+        if (++y <= maxY)
+            return;
+
+        this.inChunk = false;
+        chunkIndex++;
+    }
+
+    private void report(String message) {
+        if (sender == null || (sender instanceof Player && !((Player) sender).isOnline()))
+            return;
+
+        sender.sendMessage(message);
+    }
+}
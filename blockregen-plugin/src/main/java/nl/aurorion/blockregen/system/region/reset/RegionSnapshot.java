@@ -0,0 +1,256 @@
+package nl.aurorion.blockregen.system.region.reset;
+
+import com.cryptomorin.xseries.XMaterial;
+import lombok.EqualsAndHashCode;
+import lombok.Getter;
+import nl.aurorion.blockregen.BlockRegen;
+import nl.aurorion.blockregen.util.LocationUtil;
+import nl.aurorion.blockregen.util.LongObjectMap;
+import nl.aurorion.blockregen.version.api.NodeData;
+import org.bukkit.block.Block;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.io.BufferedInputStream;
+import java.io.DataInputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+
+/**
+ * Stored copy of a region's blocks to reset it to.
+ * <p>
+ * Layout, sections are 16x16x16 blocks of a chunk indexed by y, z, x:
+ * <pre>
+ * int magic, byte version
+ * sections: section * count
+ * section: byte bits, short size, int global palette index * size, long packed local indexes (none for 0 bits)
+ * footer: utf world, int count, palette entry * count, int count, (int chunk x, int chunk z, int section y, long offset) * count
+ * long footer offset
+ * </pre>
+ * Palette entries are the material name, empty if unknown, and the NodeData of blocks with a state.
+ * Local indexes don't span across longs.
+ * <p>
+ * Sections are memory-mapped, only the palette and the section offsets are kept on the heap.
+ * The file is never written to while mapped, new captures go to a new file.
+ * Not thread-safe, used from the main thread.
+ */
+public class RegionSnapshot implements RegionTemplate {
+
+    static final int MAGIC = 0x42525348; // BRSH
+
+    static final int VERSION = 1;
+
+    static final int SECTION_SIZE = 16 * 16 * 16;
+
+    private final BlockRegen plugin;
+
+    @Getter
+    private final Path path;
+
+    @Getter
+    private final String worldName;
+
+    private final Entry[] palette;
+
+    // Section offsets of a chunk by section y - minSection, -1 if not captured.
+    private final LongObjectMap<int[]> chunks;
+
+    private final int minSection;
+
+    // Null once closed.
+    private MappedByteBuffer buffer;
+
+    // Last used section.
+    private int sectionOffset = -1;
+    private int[] sectionPalette;
+    private int bits;
+    private int dataOffset;
+
+    private RegionSnapshot(BlockRegen plugin, Path path, String worldName, Entry[] palette, LongObjectMap<int[]> chunks, int minSection, MappedByteBuffer buffer) {
+        this.plugin = plugin;
+        this.path = path;
+        this.worldName = worldName;
+        this.palette = palette;
+        this.chunks = chunks;
+        this.minSection = minSection;
+        this.buffer = buffer;
+    }
+
+    @NotNull
+    public static RegionSnapshot open(@NotNull BlockRegen plugin, @NotNull Path path) throws IOException {
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            long size = channel.size();
+
+            if (size < 13)
+                throw new IOException("Snapshot " + path + " is truncated.");
+
+            ByteBuffer trailer = ByteBuffer.allocate(8);
+            while (trailer.hasRemaining()) {
+                if (channel.read(trailer, size - 8 + trailer.position()) < 0)
+                    throw new IOException("Snapshot " + path + " is truncated.");
+            }
+            trailer.flip();
+
+            long footer = trailer.getLong();
+
+            if (footer < 5 || footer > size - 8)
+                throw new IOException("Snapshot " + path + " is corrupted.");
+
+            // A single mapping can't go over 2GB.
+            if (footer > Integer.MAX_VALUE)
+                throw new IOException("Snapshot " + path + " is too large.");
+
+            MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, footer);
+
+            if (buffer.getInt(0) != MAGIC)
+                throw new IOException(path + " is not a region snapshot.");
+
+            int version = buffer.get(4) & 0xFF;
+            if (version != VERSION)
+                throw new IOException("Unsupported snapshot version " + version + ".");
+
+            channel.position(footer);
+            DataInputStream in = new DataInputStream(new BufferedInputStream(Channels.newInputStream(channel)));
+
+            String worldName = in.readUTF();
+
+            Entry[] palette = new Entry[in.readInt()];
+            for (int i = 0; i < palette.length; i++) {
+                String name = in.readUTF();
+                boolean hasData = in.readBoolean();
+
+                XMaterial material = name.isEmpty() ? null : XMaterial.matchXMaterial(name).orElse(null);
+                NodeData data = hasData ? plugin.getVersionManager().getCodecRegistry().read(in) : null;
+
+                palette[i] = new Entry(material, data);
+            }
+
+            int count = in.readInt();
+            int[][] sections = new int[count][];
+
+            int minSection = Integer.MAX_VALUE;
+            int maxSection = Integer.MIN_VALUE;
+            for (int i = 0; i < count; i++) {
+                sections[i] = new int[]{in.readInt(), in.readInt(), in.readInt(), (int) in.readLong()};
+                minSection = Math.min(minSection, sections[i][2]);
+                maxSection = Math.max(maxSection, sections[i][2]);
+            }
+
+            LongObjectMap<int[]> chunks = new LongObjectMap<>();
+            for (int[] section : sections) {
+                long key = LocationUtil.chunkKey(section[0], section[1]);
+
+                int[] offsets = chunks.get(key);
+
+                if (offsets == null) {
+                    offsets = new int[maxSection - minSection + 1];
+                    Arrays.fill(offsets, -1);
+                    chunks.put(key, offsets);
+                }
+
+                offsets[section[2] - minSection] = section[3];
+            }
+
+            return new RegionSnapshot(plugin, path, worldName, palette, chunks, minSection, buffer);
+        }
+    }
+
+    /**
+     * Stop reading from the file, blocks are left as they are from now on.
+     * <p>
+     * The mapping itself is released once the buffer is garbage collected, until then the file can't be deleted on Windows.
+     */
+    public void close() {
+        this.buffer = null;
+        this.sectionOffset = -1;
+        this.sectionPalette = null;
+    }
+
+    public boolean isClosed() {
+        return buffer == null;
+    }
+
+    /**
+     * Place the stored block, blocks outside of the snapshot are left as they are.
+     */
+    @Override
+    public void apply(@NotNull Block block) {
+        Entry entry = getEntry(block.getX(), block.getY(), block.getZ());
+
+        if (entry == null || entry.material == null)
+            return;
+
+        plugin.getVersionManager().getMethods().setType(block, entry.material);
+
+        if (entry.data != null)
+            entry.data.place(block);
+    }
+
+    @Nullable
+    public Entry getEntry(int x, int y, int z) {
+        // Closed.
+        if (buffer == null)
+            return null;
+
+        int[] offsets = chunks.get(LocationUtil.chunkKey(x >> 4, z >> 4));
+
+        int section = (y >> 4) - minSection;
+
+        if (offsets == null || section < 0 || section >= offsets.length || offsets[section] < 0)
+            return null;
+
+        if (offsets[section] != sectionOffset)
+            readSection(offsets[section]);
+
+        int index = ((y & 15) << 8) | ((z & 15) << 4) | (x & 15);
+
+        if (bits == 0)
+            return palette[sectionPalette[0]];
+
+        int perLong = 64 / bits;
+        long word = buffer.getLong(dataOffset + (index / perLong) * 8);
+        int local = (int) ((word >>> ((index % perLong) * bits)) & ((1L << bits) - 1));
+
+        return palette[sectionPalette[local]];
+    }
+
+    private void readSection(int offset) {
+        this.bits = buffer.get(offset) & 0xFF;
+
+        int size = buffer.getShort(offset + 1) & 0xFFFF;
+
+        this.sectionPalette = new int[size];
+        for (int i = 0; i < size; i++) {
+            sectionPalette[i] = buffer.getInt(offset + 3 + i * 4);
+        }
+
+        this.dataOffset = offset + 3 + size * 4;
+        this.sectionOffset = offset;
+    }
+
+    static int bitsFor(int paletteSize) {
+        return paletteSize <= 1 ? 0 : 32 - Integer.numberOfLeadingZeros(paletteSize - 1);
+    }
+
+    @Getter
+    @EqualsAndHashCode
+    public static class Entry {
+        // Null if unknown on this version.
+        @Nullable
+        private final XMaterial material;
+
+        @Nullable
+        private final NodeData data;
+
+        public Entry(@Nullable XMaterial material, @Nullable NodeData data) {
+            this.material = material;
+            this.data = data;
+        }
+    }
+}
@@ -0,0 +1,15 @@
+package nl.aurorion.blockregen.system.region.reset;
+
+import org.bukkit.block.Block;
+import org.jetbrains.annotations.NotNull;
+
+/**
+ * Source of the blocks a region is reset to.
+ */
+public interface RegionTemplate {
+
+    /**
+     * Set the block to its state in the template. Called on the main thread.
+     */
+    void apply(@NotNull Block block);
+}
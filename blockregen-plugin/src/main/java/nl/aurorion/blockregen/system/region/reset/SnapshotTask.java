@@ -0,0 +1,247 @@
+package nl.aurorion.blockregen.system.region.reset;
+
+import lombok.Getter;
+import lombok.extern.java.Log;
+import nl.aurorion.blockregen.BlockRegen;
+import nl.aurorion.blockregen.Message;
+import nl.aurorion.blockregen.system.region.shape.Coverage;
+import nl.aurorion.blockregen.system.region.shape.RegionShape;
+import nl.aurorion.blockregen.system.region.struct.RegenerationRegion;
+import nl.aurorion.blockregen.util.LocationUtil;
+import org.bukkit.Bukkit;
+import org.bukkit.ChunkSnapshot;
+import org.bukkit.World;
+import org.bukkit.command.CommandSender;
+import org.bukkit.entity.Player;
+import org.bukkit.scheduler.BukkitTask;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Consumer;
+import java.util.logging.Level;
+
+/**
+ * Captures a region into a {@link RegionSnapshot}.
+ * <p>
+ * Chunk snapshots are taken on the main thread under the reset time budget,
+ * encoded and written on the persistence thread.
+ */
+@Log
+public class SnapshotTask implements Runnable {
+
+    // Seconds between progress reports.
+    private static final long REPORT_INTERVAL = 5;
+
+    // Chunk snapshots waiting to be written, keeps them from piling up in memory.
+    private static final int MAX_PENDING = 32;
+
+    private final BlockRegen plugin;
+
+    @Getter
+    private final RegenerationRegion region;
+
+    private final World world;
+
+    @Nullable
+    private final CommandSender sender;
+
+    private final long maxNanos;
+
+    private final int[][] chunks;
+
+    private final SnapshotWriter writer;
+
+    // Called on the main thread once the snapshot is in place.
+    private final Consumer<SnapshotTask> callback;
+
+    private int chunkIndex = 0;
+
+    private final AtomicInteger pending = new AtomicInteger();
+
+    private volatile boolean failed = false;
+
+    private long started;
+
+    private long lastReport;
+
+    private BukkitTask task;
+
+    public SnapshotTask(BlockRegen plugin, @NotNull RegenerationRegion region, @NotNull World world, @NotNull Path path,
+                        @Nullable CommandSender sender, @NotNull Consumer<SnapshotTask> callback) {
+        this.plugin = plugin;
+        this.region = region;
+        this.world = world;
+        this.sender = sender;
+        this.callback = callback;
+        this.maxNanos = TimeUnit.MILLISECONDS.toNanos(Math.max(1, plugin.getConfig().getInt("Region-Reset.Max-Time-Per-Tick", 10)));
+
+        RegionShape shape = region.getShape();
+
+        int minSection = Math.max(shape.getMinY(), LocationUtil.getMinHeight(world)) >> 4;
+        int maxSection = Math.min(shape.getMaxY(), world.getMaxHeight() - 1) >> 4;
+
+        List<int[]> chunks = new ArrayList<>();
+
+        for (int chunkX = shape.getMinX() >> 4; minSection <= maxSection && chunkX <= shape.getMaxX() >> 4; chunkX++) {
+            for (int chunkZ = shape.getMinZ() >> 4; chunkZ <= shape.getMaxZ() >> 4; chunkZ++) {
+                if (region.getCoverage(chunkX, chunkZ) != Coverage.OUTSIDE)
+                    chunks.add(new int[]{chunkX, chunkZ});
+            }
+        }
+        this.chunks = chunks.toArray(new int[0][]);
+
+        this.writer = new SnapshotWriter(plugin.getVersionManager(), path, world.getName(), minSection, maxSection);
+    }
+
+    public void start() {
+        if (task != null)
+            return;
+
+        this.started = System.currentTimeMillis();
+        this.lastReport = started;
+
+        write(writer::open);
+
+        this.task = Bukkit.getScheduler().runTaskTimer(plugin, this, 1L, 1L);
+    }
+
+    /**
+     * Stop capturing, the previous snapshot stays.
+     */
+    public void cancel() {
+        if (task == null)
+            return;
+
+        task.cancel();
+        this.task = null;
+
+        this.failed = true;
+
+        try {
+            plugin.getPersistenceExecutor().execute(writer::abort);
+        } catch (RejectedExecutionException e) {
+            // Already shut down, the temporary file gets replaced next time.
+        }
+    }
+
+    public boolean isRunning() {
+        return task != null;
+    }
+
+    /**
+     * @return Progress in percent, by chunks.
+     */
+    public int getProgress() {
+        return chunks.length == 0 ? 100 : chunkIndex * 100 / chunks.length;
+    }
+
+    @Override
+    public void run() {
+        // Reported by the write that failed.
+        if (failed) {
+            cancel();
+            return;
+        }
+
+        long start = System.nanoTime();
+
+        while (chunkIndex < chunks.length && pending.get() < MAX_PENDING) {
+            int[] chunk = chunks[chunkIndex++];
+
+            // Loads or generates the chunk if needed.
+            ChunkSnapshot snapshot = world.getChunkAt(chunk[0], chunk[1]).getChunkSnapshot(false, false, false);
+
+            pending.incrementAndGet();
+            write(() -> {
+                try {
+                    writer.writeChunk(snapshot, chunk[0], chunk[1]);
+                } finally {
+                    pending.decrementAndGet();
+                }
+            });
+
+            if (System.nanoTime() - start >= maxNanos)
+                break;
+        }
+
+        if (chunkIndex >= chunks.length) {
+            task.cancel();
+            this.task = null;
+
+            write(this::finish);
+            return;
+        }
+
+        long now = System.currentTimeMillis();
+
+        if (now - lastReport >= TimeUnit.SECONDS.toMillis(REPORT_INTERVAL)) {
+            report(Message.SNAPSHOT_PROGRESS.get()
+                    .replace("%region%", region.getName())
+                    .replace("%progress%", String.valueOf(getProgress())));
+            this.lastReport = now;
+        }
+    }
+
+    // On the persistence thread.
+    private void finish() throws IOException {
+        writer.finish();
+
+        long time = System.currentTimeMillis() - started;
+        log.info(String.format("Captured %d chunk(s) of region %s in %.1fs.", chunks.length, region.getName(), time / 1000.0));
+
+        // Disabled while writing.
+        if (!plugin.isEnabled())
+            return;
+
+        Bukkit.getScheduler().runTask(plugin, () -> {
+            callback.accept(this);
+            report(Message.SNAPSHOT_DONE.get()
+                    .replace("%region%", region.getName())
+                    .replace("%chunks%", String.valueOf(chunks.length))
+                    .replace("%time%", String.format("%.1f", time / 1000.0)));
+        });
+    }
+
+    // Run on the persistence thread, later steps are skipped once one fails.
+    private void write(Step step) {
+        try {
+            plugin.getPersistenceExecutor().execute(() -> {
+                if (failed)
+                    return;
+
+                try {
+                    step.run();
+                } catch (IOException | RuntimeException e) {
+                    log.log(Level.SEVERE, "Could not capture a snapshot of region " + region.getName(), e);
+                    this.failed = true;
+                    writer.abort();
+
+                    if (plugin.isEnabled())
+                        Bukkit.getScheduler().runTask(plugin, () -> report(Message.SNAPSHOT_FAILED.get()
+                                .replace("%region%", region.getName())));
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            // Shutting down.
+            this.failed = true;
+        }
+    }
+
+    private void report(String message) {
+        if (sender == null || (sender instanceof Player && !((Player) sender).isOnline()))
+            return;
+
+        sender.sendMessage(message);
+    }
+
+    private interface Step {
+        void run() throws IOException;
+    }
+}
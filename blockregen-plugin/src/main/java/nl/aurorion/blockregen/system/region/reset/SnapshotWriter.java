@@ -0,0 +1,221 @@
+package nl.aurorion.blockregen.system.region.reset;
+
+import com.cryptomorin.xseries.XMaterial;
+import com.google.common.io.CountingOutputStream;
+import lombok.extern.java.Log;
+import nl.aurorion.blockregen.system.storage.PersistenceExecutor;
+import nl.aurorion.blockregen.version.VersionManager;
+import nl.aurorion.blockregen.version.api.NodeData;
+import org.bukkit.ChunkSnapshot;
+import org.jetbrains.annotations.NotNull;
+
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.logging.Level;
+
+/**
+ * Writes a {@link RegionSnapshot} one chunk at a time into a temporary file, moved over the snapshot once finished.
+ * Not thread-safe, used from the persistence thread.
+ */
+@Log
+class SnapshotWriter {
+
+    private final VersionManager versionManager;
+
+    private final Path path;
+
+    private final Path temp;
+
+    private final String worldName;
+
+    private final int minSection, maxSection;
+
+    private final Map<RegionSnapshot.Entry, Integer> palette = new HashMap<>();
+    private final List<RegionSnapshot.Entry> paletteOrder = new ArrayList<>();
+
+    // Global palette index by block state, the entry is only read once per state.
+    private final Map<Object, Integer> stateIndexes = new HashMap<>();
+
+    private final NodeData empty;
+
+    // chunk x, chunk z, section y, offset
+    private final List<long[]> sections = new ArrayList<>();
+
+    private CountingOutputStream counter;
+    private DataOutputStream out;
+
+    // Reused between sections.
+    private final int[] states = new int[RegionSnapshot.SECTION_SIZE];
+
+    SnapshotWriter(@NotNull VersionManager versionManager, @NotNull Path path, @NotNull String worldName, int minSection, int maxSection) {
+        this.versionManager = versionManager;
+        this.path = path;
+        this.temp = path.resolveSibling(path.getFileName() + ".tmp");
+        this.worldName = worldName;
+        this.minSection = minSection;
+        this.maxSection = maxSection;
+        this.empty = versionManager.createNodeData();
+    }
+
+    void open() throws IOException {
+        Files.createDirectories(path.getParent());
+
+        this.counter = new CountingOutputStream(new BufferedOutputStream(Files.newOutputStream(temp)));
+        this.out = new DataOutputStream(counter);
+
+        out.writeInt(RegionSnapshot.MAGIC);
+        out.writeByte(RegionSnapshot.VERSION);
+    }
+
+    void writeChunk(@NotNull ChunkSnapshot snapshot, int chunkX, int chunkZ) throws IOException {
+        for (int sectionY = minSection; sectionY <= maxSection; sectionY++) {
+            int baseY = sectionY << 4;
+
+            for (int i = 0; i < states.length; i++) {
+                int x = i & 15;
+                int z = (i >> 4) & 15;
+                int y = baseY + (i >> 8);
+
+                states[i] = indexOf(snapshot, x, y, z);
+            }
+
+            writeSection(chunkX, chunkZ, sectionY);
+        }
+    }
+
+    private int indexOf(ChunkSnapshot snapshot, int x, int y, int z) {
+        Object state = versionManager.getMethods().getState(snapshot, x, y, z);
+
+        Integer index = stateIndexes.get(state);
+
+        if (index == null) {
+            index = indexOf(readEntry(snapshot, x, y, z));
+            stateIndexes.put(state, index);
+        }
+        return index;
+    }
+
+    private RegionSnapshot.Entry readEntry(ChunkSnapshot snapshot, int x, int y, int z) {
+        XMaterial material;
+        try {
+            material = versionManager.getMethods().getType(snapshot, x, y, z);
+        } catch (IllegalArgumentException e) {
+            // Not known to XMaterial, left out of resets.
+            material = null;
+        }
+
+        if (material == null)
+            return new RegionSnapshot.Entry(null, null);
+
+        NodeData data = versionManager.createNodeData();
+        data.load(snapshot, x, y, z);
+
+        // Only keep data of blocks with a state.
+        return new RegionSnapshot.Entry(material, data.equals(empty) ? null : data);
+    }
+
+    private int indexOf(RegionSnapshot.Entry entry) {
+        Integer index = palette.get(entry);
+
+        if (index == null) {
+            index = paletteOrder.size();
+            palette.put(entry, index);
+            paletteOrder.add(entry);
+        }
+        return index;
+    }
+
+    // bits per entry, local palette size, local palette as global indexes, packed local indexes
+    private void writeSection(int chunkX, int chunkZ, int sectionY) throws IOException {
+        Map<Integer, Integer> local = new HashMap<>();
+        List<Integer> localOrder = new ArrayList<>();
+
+        for (int i = 0; i < states.length; i++) {
+            Integer index = local.get(states[i]);
+
+            if (index == null) {
+                index = localOrder.size();
+                local.put(states[i], index);
+                localOrder.add(states[i]);
+            }
+            states[i] = index;
+        }
+
+        sections.add(new long[]{chunkX, chunkZ, sectionY, counter.getCount()});
+
+        int bits = RegionSnapshot.bitsFor(localOrder.size());
+
+        out.writeByte(bits);
+        out.writeShort(localOrder.size());
+        for (int global : localOrder) {
+            out.writeInt(global);
+        }
+
+        // Single block sections have no data.
+        if (bits == 0)
+            return;
+
+        int perLong = 64 / bits;
+
+        long word = 0;
+        for (int i = 0; i < states.length; i++) {
+            word |= (long) states[i] << ((i % perLong) * bits);
+
+            if (i % perLong == perLong - 1 || i == states.length - 1) {
+                out.writeLong(word);
+                word = 0;
+            }
+        }
+    }
+
+    /**
+     * Write the palette and the section index, move the snapshot in place.
+     */
+    void finish() throws IOException {
+        long footer = counter.getCount();
+
+        out.writeUTF(worldName);
+
+        out.writeInt(paletteOrder.size());
+        for (RegionSnapshot.Entry entry : paletteOrder) {
+            out.writeUTF(entry.getMaterial() == null ? "" : entry.getMaterial().name());
+            out.writeBoolean(entry.getData() != null);
+
+            if (entry.getData() != null)
+                versionManager.getCodecRegistry().write(out, entry.getData());
+        }
+
+        out.writeInt(sections.size());
+        for (long[] section : sections) {
+            out.writeInt((int) section[0]);
+            out.writeInt((int) section[1]);
+            out.writeInt((int) section[2]);
+            out.writeLong(section[3]);
+        }
+
+        out.writeLong(footer);
+        out.close();
+
+        PersistenceExecutor.moveAtomically(temp, path);
+    }
+
+    /**
+     * Drop the unfinished snapshot, the previous one stays.
+     */
+    void abort() {
+        try {
+            if (out != null)
+                out.close();
+            Files.deleteIfExists(temp);
+        } catch (IOException e) {
+            log.log(Level.WARNING, "Could not remove unfinished snapshot " + temp, e);
+        }
+    }
+}
@@ -2,9 +2,12 @@ package nl.aurorion.blockregen.system.region.struct;
 
 import lombok.Getter;
 import lombok.Setter;
+import nl.aurorion.blockregen.system.region.shape.CuboidShape;
+import nl.aurorion.blockregen.system.region.shape.RegionShape;
 import nl.aurorion.blockregen.util.LocationUtil;
 import org.bukkit.Location;
 
+import java.util.ArrayList;
 import java.util.List;
 
 public class RawRegion {
@@ -22,18 +25,37 @@ public class RawRegion {
     @Getter
     private final boolean all;
 
+    @Getter
+    private final int priority;
+
+    // Serialized shape, null for cuboids.
+    @Getter
+    private final String shape;
+
     @Getter
     @Setter
     private boolean reattempt = false;
 
-    public RawRegion(String name, String min, String max, List<String> blockPresets, boolean all) {
+    public RawRegion(String name, String min, String max, List<String> blockPresets, boolean all, int priority, String shape) {
         this.name = name;
         this.min = min;
         this.max = max;
         this.blockPresets = blockPresets;
         this.all = all;
+        this.priority = priority;
+        this.shape = shape;
+    }
+
+    public static RawRegion of(RegenerationRegion region) {
+        return new RawRegion(region.getName(), LocationUtil.locationToString(region.getMin()), LocationUtil.locationToString(region.getMax()),
+                new ArrayList<>(region.getPresets()), region.isAll(), region.getPriority(),
+                region.getShape() instanceof CuboidShape ? null : region.getShape().serialize());
     }
 
+    /**
+     * @return Null if the world is not loaded.
+     * @throws IllegalArgumentException If the shape is invalid.
+     */
     public RegenerationRegion build() {
         Location min = LocationUtil.locationFromString(this.min);
         Location max = LocationUtil.locationFromString(this.max);
@@ -42,6 +64,8 @@ public class RawRegion {
             return null;
         }
 
-        return new RegenerationRegion(name, min, max);
+        RegenerationRegion region = shape == null ? new RegenerationRegion(name, min, max) : new RegenerationRegion(name, min, max, RegionShape.parse(shape));
+        region.setPriority(priority);
+        return region;
     }
 }
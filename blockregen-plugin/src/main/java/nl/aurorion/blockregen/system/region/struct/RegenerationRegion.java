@@ -2,6 +2,9 @@ package nl.aurorion.blockregen.system.region.struct;
 
 import lombok.Getter;
 import nl.aurorion.blockregen.system.preset.struct.BlockPreset;
+import nl.aurorion.blockregen.system.region.shape.Coverage;
+import nl.aurorion.blockregen.system.region.shape.CuboidShape;
+import nl.aurorion.blockregen.system.region.shape.RegionShape;
 import org.bukkit.Location;
 import org.jetbrains.annotations.NotNull;
 import org.jetbrains.annotations.Nullable;
@@ -25,30 +28,109 @@ public class RegenerationRegion {
     @Getter
     private boolean all = true;
 
+    // Wins over lower priorities where regions overlap.
+    @Getter
+    private int priority = 0;
+
+    // Bumped on every modification, lets the region manager skip saves when nothing changed.
+    @Getter
+    private int changes = 0;
+
+    @Getter
+    private final RegionShape shape;
+
+    // Coverage of each chunk in the bounding box, most checks end with a single lookup.
+    // Null when the box spans too many chunks, the shape is tested directly then.
+    private final byte[] coverage;
+    private final int chunkMinX, chunkMinZ, chunkMaxX, chunkMaxZ;
+
+    private static final Coverage[] COVERAGES = Coverage.values();
+
+    // 1024x1024 chunks.
+    private static final int MAX_MASK_SIZE = 1 << 20;
+
     public RegenerationRegion(String name, Location min, Location max) {
+        this(name, min, max, new CuboidShape(min.getBlockX(), min.getBlockY(), min.getBlockZ(), max.getBlockX(), max.getBlockY(), max.getBlockZ()));
+    }
+
+    /**
+     * @param min Minimum corner of the bounding box.
+     * @param max Maximum corner of the bounding box.
+     */
+    public RegenerationRegion(String name, Location min, Location max, @NotNull RegionShape shape) {
         this.name = name;
         this.min = min;
         this.max = max;
+        this.shape = shape;
+
+        this.chunkMinX = shape.getMinX() >> 4;
+        this.chunkMinZ = shape.getMinZ() >> 4;
+        this.chunkMaxX = shape.getMaxX() >> 4;
+        this.chunkMaxZ = shape.getMaxZ() >> 4;
+
+        long size = (long) (chunkMaxX - chunkMinX + 1) * (chunkMaxZ - chunkMinZ + 1);
+        this.coverage = size > MAX_MASK_SIZE ? null : computeCoverage();
+    }
+
+    private byte[] computeCoverage() {
+        int width = chunkMaxZ - chunkMinZ + 1;
+        byte[] coverage = new byte[(chunkMaxX - chunkMinX + 1) * width];
+
+        for (int x = chunkMinX; x <= chunkMaxX; x++) {
+            for (int z = chunkMinZ; z <= chunkMaxZ; z++) {
+                Coverage chunk = shape.cover(
+                        Math.max(x << 4, shape.getMinX()), Math.max(z << 4, shape.getMinZ()),
+                        Math.min((x << 4) + 15, shape.getMaxX()), Math.min((z << 4) + 15, shape.getMaxZ()));
+                coverage[(x - chunkMinX) * width + (z - chunkMinZ)] = (byte) chunk.ordinal();
+            }
+        }
+        return coverage;
+    }
+
+    /**
+     * @return Coverage of the chunk column, within the vertical bounds of the shape.
+     */
+    @NotNull
+    public Coverage getCoverage(int chunkX, int chunkZ) {
+        if (chunkX < chunkMinX || chunkX > chunkMaxX || chunkZ < chunkMinZ || chunkZ > chunkMaxZ)
+            return Coverage.OUTSIDE;
+
+        if (coverage == null)
+            return Coverage.PARTIAL;
+
+        return COVERAGES[coverage[(chunkX - chunkMinX) * (chunkMaxZ - chunkMinZ + 1) + (chunkZ - chunkMinZ)]];
     }
 
     public boolean setAll(boolean all) {
+        changes++;
         return this.all = all;
     }
 
+    /**
+     * Change the priority. A loaded region has to be changed through the region manager to keep its index in order.
+     */
+    public void setPriority(int priority) {
+        this.priority = priority;
+        changes++;
+    }
+
     public boolean hasPreset(@Nullable String preset) {
         return all || (preset != null && this.presets.contains(preset));
     }
 
     public void addPreset(@NotNull String preset) {
         this.presets.add(preset);
+        changes++;
     }
 
     public void removePreset(@NotNull String preset) {
         this.presets.remove(preset);
+        changes++;
     }
 
     public void clearPresets() {
         this.presets.clear();
+        changes++;
     }
 
     public Set<String> getPresets() {
@@ -62,9 +144,23 @@ public class RegenerationRegion {
             return false;
         }
 
-        // Check coordinates
-        return location.getX() <= max.getX() && location.getX() >= min.getX()
-                && location.getZ() <= max.getZ() && location.getZ() >= min.getZ()
-                && location.getY() <= max.getY() && location.getY() >= min.getY();
+        return contains(location.getBlockX(), location.getBlockY(), location.getBlockZ());
+    }
+
+    /**
+     * Check block coordinates, without the world.
+     */
+    public boolean contains(int x, int y, int z) {
+        if (y < shape.getMinY() || y > shape.getMaxY())
+            return false;
+
+        switch (getCoverage(x >> 4, z >> 4)) {
+            case INSIDE:
+                return true;
+            case OUTSIDE:
+                return false;
+            default:
+                return shape.contains(x, y, z);
+        }
     }
 }
\ No newline at end of file
@@ -0,0 +1,204 @@
+package nl.aurorion.blockregen.system.storage;
+
+import com.cryptomorin.xseries.XMaterial;
+import com.google.gson.Gson;
+import nl.aurorion.blockregen.system.regeneration.struct.RegenerationProcess;
+import nl.aurorion.blockregen.system.regeneration.struct.SimpleLocation;
+import nl.aurorion.blockregen.version.NodeDataCodecRegistry;
+import nl.aurorion.blockregen.version.api.NodeData;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Binary snapshot of regeneration processes.
+ * <p>
+ * Layout, all counts and indexes are unsigned varints, coordinates and time left zigzag varints:
+ * <pre>
+ * int magic, byte version
+ * strings: count, utf * count          -- worlds, presets, regions and materials
+ * node data: count, data * count       -- distinct NodeData, type tag and fields by its codec
+ * processes: count, process * count
+ * process: world, x, y, z, preset, region + 1, material + 1, node data + 1, time left
+ * </pre>
+ * Indexes are shifted by one where the value can be null. Version 1 stored node data as json strings.
+ */
+public class BinarySnapshotCodec {
+
+    private static final int MAGIC = 0x42524547; // BREG
+
+    private static final int VERSION = 2;
+
+    private final Gson gson;
+
+    private final NodeDataCodecRegistry registry;
+
+    public BinarySnapshotCodec(@NotNull Gson gson, @NotNull NodeDataCodecRegistry registry) {
+        this.gson = gson;
+        this.registry = registry;
+    }
+
+    public void write(@NotNull Collection<RegenerationProcess> processes, @NotNull OutputStream output) throws IOException {
+        // Iterate once, the collection might be a live view.
+        List<RegenerationProcess> snapshot = new ArrayList<>(processes);
+
+        Table<String> strings = new Table<>();
+        Table<NodeData> nodeData = new Table<>();
+
+        int[][] rows = new int[snapshot.size()][];
+
+        for (int i = 0; i < snapshot.size(); i++) {
+            RegenerationProcess process = snapshot.get(i);
+            rows[i] = new int[]{
+                    strings.indexOf(process.getLocation().getWorld()),
+                    strings.indexOf(process.getPresetName()),
+                    strings.indexOfNullable(process.getRegionName()),
+                    strings.indexOfNullable(process.getOriginalMaterial() == null ? null : process.getOriginalMaterial().name()),
+                    nodeData.indexOfNullable(process.getOriginalData())
+            };
+        }
+
+        DataOutputStream out = new DataOutputStream(output);
+
+        out.writeInt(MAGIC);
+        out.writeByte(VERSION);
+
+        writeVarInt(out, strings.values.size());
+        for (String value : strings.values) {
+            out.writeUTF(value);
+        }
+
+        writeVarInt(out, nodeData.values.size());
+        for (NodeData value : nodeData.values) {
+            registry.write(out, value);
+        }
+
+        writeVarInt(out, snapshot.size());
+        for (int i = 0; i < snapshot.size(); i++) {
+            RegenerationProcess process = snapshot.get(i);
+            SimpleLocation location = process.getLocation();
+            int[] row = rows[i];
+
+            writeVarInt(out, row[0]);
+            writeVarLong(out, zigzag(location.getBlockX()));
+            writeVarLong(out, zigzag(location.getBlockY()));
+            writeVarLong(out, zigzag(location.getBlockZ()));
+            writeVarInt(out, row[1]);
+            writeVarInt(out, row[2]);
+            writeVarInt(out, row[3]);
+            writeVarInt(out, row[4]);
+            writeVarLong(out, zigzag(process.getTimeLeft()));
+        }
+
+        out.flush();
+    }
+
+    @NotNull
+    public List<RegenerationProcess> read(@NotNull InputStream input) throws IOException {
+        DataInputStream in = new DataInputStream(input);
+
+        if (in.readInt() != MAGIC)
+            throw new IOException("Not a process snapshot.");
+
+        int version = in.readUnsignedByte();
+        if (version < 1 || version > VERSION)
+            throw new IOException("Unsupported snapshot version " + version + ".");
+
+        String[] strings = new String[readVarInt(in)];
+        for (int i = 0; i < strings.length; i++) {
+            strings[i] = in.readUTF();
+        }
+
+        NodeData[] nodeData = new NodeData[readVarInt(in)];
+        for (int i = 0; i < nodeData.length; i++) {
+            nodeData[i] = version == 1 ? gson.fromJson(in.readUTF(), NodeData.class) : registry.read(in);
+        }
+
+        int count = readVarInt(in);
+        List<RegenerationProcess> processes = new ArrayList<>(count);
+
+        for (int i = 0; i < count; i++) {
+            String world = strings[readVarInt(in)];
+            int x = (int) unzigzag(readVarLong(in));
+            int y = (int) unzigzag(readVarLong(in));
+            int z = (int) unzigzag(readVarLong(in));
+            String preset = strings[readVarInt(in)];
+            String region = nullable(strings, readVarInt(in));
+            String material = nullable(strings, readVarInt(in));
+            NodeData data = nullable(nodeData, readVarInt(in));
+            long timeLeft = unzigzag(readVarLong(in));
+
+            processes.add(new RegenerationProcess(new SimpleLocation(world, x, y, z),
+                    material == null ? null : XMaterial.matchXMaterial(material).orElse(null),
+                    data, preset, region, timeLeft));
+        }
+        return processes;
+    }
+
+    @Nullable
+    private static <T> T nullable(T[] table, int index) {
+        return index == 0 ? null : table[index - 1];
+    }
+
+    private static long zigzag(long value) {
+        return (value << 1) ^ (value >> 63);
+    }
+
+    private static long unzigzag(long value) {
+        return (value >>> 1) ^ -(value & 1);
+    }
+
+    private static void writeVarInt(DataOutputStream out, int value) throws IOException {
+        writeVarLong(out, value & 0xFFFFFFFFL);
+    }
+
+    private static void writeVarLong(DataOutputStream out, long value) throws IOException {
+        while ((value & ~0x7FL) != 0) {
+            out.writeByte((int) (value & 0x7F) | 0x80);
+            value >>>= 7;
+        }
+        out.writeByte((int) value);
+    }
+
+    private static int readVarInt(DataInputStream in) throws IOException {
+        return (int) readVarLong(in);
+    }
+
+    private static long readVarLong(DataInputStream in) throws IOException {
+        long value = 0;
+        for (int shift = 0; shift < 64; shift += 7) {
+            int b = in.readUnsignedByte();
+            value |= (long) (b & 0x7F) << shift;
+            if ((b & 0x80) == 0)
+                return value;
+        }
+        throw new IOException("Malformed varint.");
+    }
+
+    // Assigns each distinct value an index in order of appearance.
+    private static class Table<T> {
+        private final Map<T, Integer> indexes = new HashMap<>();
+        private final List<T> values = new ArrayList<>();
+
+        private int indexOf(T value) {
+            return indexes.computeIfAbsent(value, v -> {
+                values.add(v);
+                return values.size() - 1;
+            });
+        }
+
+        private int indexOfNullable(@Nullable T value) {
+            return value == null ? 0 : indexOf(value) + 1;
+        }
+    }
+}
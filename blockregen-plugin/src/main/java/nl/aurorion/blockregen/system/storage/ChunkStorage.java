@@ -0,0 +1,517 @@
+package nl.aurorion.blockregen.system.storage;
+
+import lombok.extern.java.Log;
+import nl.aurorion.blockregen.BlockRegen;
+import nl.aurorion.blockregen.system.regeneration.struct.RegenerationProcess;
+import nl.aurorion.blockregen.system.regeneration.struct.SimpleLocation;
+import nl.aurorion.blockregen.system.region.struct.RawRegion;
+import nl.aurorion.blockregen.util.LocationUtil;
+import nl.aurorion.blockregen.util.LongObjectMap;
+import org.bukkit.Bukkit;
+import org.bukkit.Chunk;
+import org.bukkit.NamespacedKey;
+import org.bukkit.World;
+import org.bukkit.persistence.PersistentDataContainer;
+import org.bukkit.persistence.PersistentDataType;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.logging.Level;
+
+/**
+ * Stores processes in the persistent data container of their chunk, regions stay in Regions.yml.
+ * <p>
+ * Nothing is loaded up front. Processes are read when their chunk loads and written when it unloads or its world saves,
+ * the data moves with copies of the world. Chunks are only touched on the main thread and never loaded just to write them,
+ * changes of chunks that aren't loaded on shutdown go to a side file until the chunk loads again. Requires 1.16.1+.
+ */
+@Log
+public class ChunkStorage implements StorageBackend {
+
+    private final BlockRegen plugin;
+
+    private final NamespacedKey processesKey;
+    private final NamespacedKey savedKey;
+
+    private final BinarySnapshotCodec codec;
+
+    // Regions aren't tied to chunks.
+    private final FlatFileStorage regionStorage;
+
+    // Processes per loaded chunk, plus chunks that unloaded with changes not written yet.
+    private final Map<String, LongObjectMap<ChunkEntry>> chunks = new HashMap<>();
+
+    private int dirtyChunks = 0;
+
+    // Changes of chunks that weren't loaded when the server stopped, merged into the chunk once it loads.
+    // Kept in a side file instead of loading the chunks to write them.
+    private final Map<String, LongObjectMap<List<RegenerationProcess>>> pending = new HashMap<>();
+
+    private static final String PENDING_FILE = "Chunk-Changes.dat";
+
+    // Time the server was offline doesn't count towards the regeneration, same as with the other storages.
+    private final long startTime = System.currentTimeMillis();
+
+    public ChunkStorage(@NotNull BlockRegen plugin) {
+        this.plugin = plugin;
+        this.processesKey = new NamespacedKey(plugin, "processes");
+        this.savedKey = new NamespacedKey(plugin, "saved");
+        this.codec = new BinarySnapshotCodec(plugin.getGsonHelper().getGson(), plugin.getVersionManager().getCodecRegistry());
+        this.regionStorage = new FlatFileStorage(plugin, true, false);
+    }
+
+    /**
+     * @return True if the server supports persistent data on chunks. Check before creating the storage.
+     */
+    public static boolean isSupported() {
+        try {
+            return Class.forName("org.bukkit.persistence.PersistentDataHolder").isAssignableFrom(Chunk.class);
+        } catch (ClassNotFoundException e) {
+            return false;
+        }
+    }
+
+    @Override
+    public void open() throws IOException {
+        regionStorage.open();
+        readPending();
+    }
+
+    // Dirty chunks that unloaded meanwhile are not loaded again, their changes go to the side file.
+    @Override
+    public void close(long timeout, @NotNull TimeUnit unit) {
+        if (Bukkit.isPrimaryThread()) {
+            writeDirty(null);
+            writePending();
+        }
+        regionStorage.close(timeout, unit);
+    }
+
+    private Path getPendingPath() {
+        return plugin.getDataFolder().toPath().resolve(PENDING_FILE);
+    }
+
+    private void readPending() {
+        Path path = getPendingPath();
+
+        if (!Files.exists(path))
+            return;
+
+        List<RegenerationProcess> processes;
+        try (InputStream input = new BufferedInputStream(Files.newInputStream(path))) {
+            processes = codec.read(input);
+        } catch (IOException e) {
+            log.log(Level.SEVERE, "Could not read changes of unloaded chunks from " + path, e);
+            return;
+        }
+
+        synchronized (chunks) {
+            for (RegenerationProcess process : processes) {
+                SimpleLocation location = process.getLocation();
+
+                LongObjectMap<List<RegenerationProcess>> worldPending = pending.computeIfAbsent(location.getWorld(), k -> new LongObjectMap<>());
+
+                long key = LocationUtil.chunkKey(location.getBlockX() >> 4, location.getBlockZ() >> 4);
+                List<RegenerationProcess> changes = worldPending.get(key);
+
+                if (changes == null) {
+                    changes = new ArrayList<>();
+                    worldPending.put(key, changes);
+                }
+                changes.add(process);
+            }
+        }
+
+        log.fine("Read " + processes.size() + " process(es) of unloaded chunks.");
+    }
+
+    // Main thread only, once the loaded chunks are written.
+    private void writePending() {
+        List<RegenerationProcess> processes = new ArrayList<>();
+
+        long now = System.currentTimeMillis();
+
+        synchronized (chunks) {
+            // Not merged yet, count down the time the server ran.
+            for (LongObjectMap<List<RegenerationProcess>> worldPending : pending.values()) {
+                worldPending.forEach(changes -> {
+                    for (RegenerationProcess process : changes) {
+                        if (process.getTimeLeft() > 0)
+                            process.setTimeLeft(Math.max(0, process.getTimeLeft() - (now - startTime)));
+                        processes.add(process);
+                    }
+                });
+            }
+
+            for (LongObjectMap<ChunkEntry> worldChunks : chunks.values()) {
+                worldChunks.forEach(entry -> {
+                    if (!entry.dirty)
+                        return;
+
+                    for (RegenerationProcess process : entry.processes.values()) {
+                        if (process.getRegenerationTime() > 0)
+                            process.setTimeLeft(Math.max(0, process.getRegenerationTime() - now));
+                        processes.add(process);
+                    }
+                });
+            }
+        }
+
+        Path path = getPendingPath();
+
+        try {
+            if (processes.isEmpty()) {
+                Files.deleteIfExists(path);
+                return;
+            }
+
+            PersistenceExecutor.writeAtomically(path, temp -> {
+                try (OutputStream output = new BufferedOutputStream(Files.newOutputStream(temp))) {
+                    codec.write(processes, output);
+                }
+            });
+            log.fine("Wrote " + processes.size() + " process(es) of unloaded chunks.");
+        } catch (IOException e) {
+            log.log(Level.SEVERE, "Could not write changes of unloaded chunks to " + path, e);
+        }
+    }
+
+    // --- Chunks
+
+    /**
+     * Read processes stored in the chunk and keep track of them. Has to be called from the main thread.
+     *
+     * @return Processes with their time left reduced by the time the chunk was unloaded. Presets are not resolved yet.
+     */
+    @NotNull
+    public List<RegenerationProcess> readChunk(@NotNull Chunk chunk) {
+        PersistentDataContainer container = chunk.getPersistentDataContainer();
+
+        byte[] data = container.get(processesKey, PersistentDataType.BYTE_ARRAY);
+
+        List<RegenerationProcess> processes = new ArrayList<>();
+
+        if (data != null) {
+            try {
+                processes.addAll(codec.read(new ByteArrayInputStream(data)));
+            } catch (IOException e) {
+                log.log(Level.SEVERE, String.format("Could not read regeneration processes of chunk %s;%d;%d", chunk.getWorld().getName(), chunk.getX(), chunk.getZ()), e);
+            }
+        }
+
+        long now = System.currentTimeMillis();
+        long saved = container.getOrDefault(savedKey, PersistentDataType.LONG, now);
+        long elapsed = Math.max(0, now - Math.max(saved, startTime));
+
+        String worldName = chunk.getWorld().getName();
+
+        synchronized (chunks) {
+            List<RegenerationProcess> changes = takePending(worldName, chunk.getX(), chunk.getZ());
+
+            if (processes.isEmpty() && changes.isEmpty())
+                return Collections.emptyList();
+
+            ChunkEntry entry = entry(worldName, chunk.getX(), chunk.getZ());
+
+            // Newer than what's in the chunk, older than changes made since the start.
+            for (RegenerationProcess process : changes) {
+                process.getLocation().setWorld(worldName);
+
+                if (process.getTimeLeft() > 0)
+                    process.setTimeLeft(Math.max(0, process.getTimeLeft() - (now - startTime)));
+
+                entry.processes.putIfAbsent(keyOf(process.getLocation()), process);
+                markDirty(entry);
+            }
+
+            for (RegenerationProcess process : processes) {
+                // The world might have been copied under a different name.
+                process.getLocation().setWorld(worldName);
+
+                if (process.getTimeLeft() > 0)
+                    process.setTimeLeft(Math.max(0, process.getTimeLeft() - elapsed));
+
+                entry.processes.putIfAbsent(keyOf(process.getLocation()), process);
+            }
+
+            // First, so they're registered over what's in the chunk.
+            processes.addAll(0, changes);
+        }
+
+        log.fine(String.format("Read %d process(es) from chunk %s;%d;%d", processes.size(), worldName, chunk.getX(), chunk.getZ()));
+        return processes;
+    }
+
+    // Called with the lock held.
+    private List<RegenerationProcess> takePending(String worldName, int chunkX, int chunkZ) {
+        LongObjectMap<List<RegenerationProcess>> worldPending = pending.get(worldName);
+
+        if (worldPending == null)
+            return Collections.emptyList();
+
+        List<RegenerationProcess> changes = worldPending.remove(LocationUtil.chunkKey(chunkX, chunkZ));
+
+        if (worldPending.isEmpty())
+            pending.remove(worldName);
+
+        return changes == null ? Collections.emptyList() : changes;
+    }
+
+    /**
+     * Write the chunk if it changed and stop tracking it. Has to be called from the main thread.
+     *
+     * @return Processes that were tracked in the chunk.
+     */
+    @NotNull
+    public Collection<RegenerationProcess> unloadChunk(@NotNull Chunk chunk) {
+        synchronized (chunks) {
+            LongObjectMap<ChunkEntry> worldChunks = chunks.get(chunk.getWorld().getName());
+
+            if (worldChunks == null)
+                return Collections.emptyList();
+
+            ChunkEntry entry = worldChunks.remove(LocationUtil.chunkKey(chunk.getX(), chunk.getZ()));
+
+            if (entry == null)
+                return Collections.emptyList();
+
+            if (worldChunks.isEmpty())
+                chunks.remove(chunk.getWorld().getName());
+
+            if (entry.dirty)
+                write(chunk, entry);
+
+            return entry.processes.values();
+        }
+    }
+
+    /**
+     * Write changed chunks of the world. Has to be called from the main thread.
+     */
+    public void saveWorld(@NotNull String worldName) {
+        writeDirty(Collections.singleton(worldName));
+    }
+
+    // Main thread only, chunks that aren't loaded are left for later.
+    private void writeDirty(@Nullable Set<String> worlds) {
+        synchronized (chunks) {
+            for (Map.Entry<String, LongObjectMap<ChunkEntry>> worldEntry : new ArrayList<>(chunks.entrySet())) {
+                if (worlds != null && !worlds.contains(worldEntry.getKey()))
+                    continue;
+
+                World world = Bukkit.getWorld(worldEntry.getKey());
+
+                if (world == null)
+                    continue;
+
+                LongObjectMap<ChunkEntry> worldChunks = worldEntry.getValue();
+
+                for (Object value : worldChunks.toArray()) {
+                    ChunkEntry entry = (ChunkEntry) value;
+
+                    if (!entry.dirty || !world.isChunkLoaded(entry.x, entry.z))
+                        continue;
+
+                    write(world.getChunkAt(entry.x, entry.z), entry);
+                }
+
+                if (worldChunks.isEmpty())
+                    chunks.remove(worldEntry.getKey());
+            }
+        }
+    }
+
+    // Called with the lock held.
+    private void write(Chunk chunk, ChunkEntry entry) {
+        PersistentDataContainer container = chunk.getPersistentDataContainer();
+
+        markClean(entry);
+
+        if (entry.processes.isEmpty()) {
+            container.remove(processesKey);
+            container.remove(savedKey);
+            return;
+        }
+
+        long now = System.currentTimeMillis();
+
+        for (RegenerationProcess process : entry.processes.values()) {
+            // Processes that didn't start yet keep their time.
+            if (process.getRegenerationTime() > 0)
+                process.setTimeLeft(Math.max(0, process.getRegenerationTime() - now));
+        }
+
+        ByteArrayOutputStream output = new ByteArrayOutputStream();
+        try {
+            codec.write(entry.processes.values(), output);
+        } catch (IOException e) {
+            log.log(Level.SEVERE, String.format("Could not write regeneration processes of chunk %s;%d;%d", chunk.getWorld().getName(), chunk.getX(), chunk.getZ()), e);
+            return;
+        }
+
+        container.set(processesKey, PersistentDataType.BYTE_ARRAY, output.toByteArray());
+        container.set(savedKey, PersistentDataType.LONG, now);
+    }
+
+    private ChunkEntry entry(String worldName, int chunkX, int chunkZ) {
+        LongObjectMap<ChunkEntry> worldChunks = chunks.computeIfAbsent(worldName, k -> new LongObjectMap<>());
+
+        long key = LocationUtil.chunkKey(chunkX, chunkZ);
+        ChunkEntry entry = worldChunks.get(key);
+
+        if (entry == null) {
+            entry = new ChunkEntry(chunkX, chunkZ);
+            worldChunks.put(key, entry);
+        }
+        return entry;
+    }
+
+    private void markDirty(ChunkEntry entry) {
+        if (!entry.dirty) {
+            entry.dirty = true;
+            dirtyChunks++;
+        }
+    }
+
+    private void markClean(ChunkEntry entry) {
+        if (entry.dirty) {
+            entry.dirty = false;
+            dirtyChunks--;
+        }
+    }
+
+    private static long keyOf(SimpleLocation location) {
+        return LocationUtil.blockKey(location.getBlockX(), location.getBlockY(), location.getBlockZ());
+    }
+
+    // --- Processes
+
+    // Nothing is loaded up front, chunks are read as they load.
+    @Override
+    public @NotNull Set<String> getStoredWorlds() {
+        return Collections.emptySet();
+    }
+
+    @Override
+    public @NotNull List<RegenerationProcess> loadProcesses(@NotNull String worldName) {
+        return Collections.emptyList();
+    }
+
+    @Override
+    public @NotNull List<RegenerationProcess> loadProcesses() {
+        return Collections.emptyList();
+    }
+
+    @Override
+    public void recordAdd(@NotNull RegenerationProcess process) {
+        SimpleLocation location = process.getLocation();
+
+        synchronized (chunks) {
+            ChunkEntry entry = entry(location.getWorld(), location.getBlockX() >> 4, location.getBlockZ() >> 4);
+            entry.processes.put(keyOf(location), process);
+            markDirty(entry);
+        }
+    }
+
+    @Override
+    public void recordRemove(@NotNull SimpleLocation location) {
+        synchronized (chunks) {
+            LongObjectMap<ChunkEntry> worldChunks = chunks.get(location.getWorld());
+
+            if (worldChunks == null)
+                return;
+
+            ChunkEntry entry = worldChunks.get(LocationUtil.chunkKey(location.getBlockX() >> 4, location.getBlockZ() >> 4));
+
+            if (entry != null && entry.processes.remove(keyOf(location)) != null)
+                markDirty(entry);
+        }
+    }
+
+    // Chunks are rewritten as a whole, count them instead of single changes.
+    @Override
+    public int getPendingChanges() {
+        synchronized (chunks) {
+            return dirtyChunks;
+        }
+    }
+
+    @Override
+    public @NotNull CompletableFuture<Void> saveProcesses(@NotNull Collection<RegenerationProcess> processes) {
+        return writeLoaded(null);
+    }
+
+    @Override
+    public @NotNull CompletableFuture<Void> saveProcesses(@NotNull Collection<RegenerationProcess> processes, @NotNull Set<String> worlds) {
+        return writeLoaded(worlds);
+    }
+
+    @Override
+    public @NotNull CompletableFuture<Void> flush() {
+        return writeLoaded(null);
+    }
+
+    // Tracked processes are written, the given ones are all of them anyway.
+    private CompletableFuture<Void> writeLoaded(@Nullable Set<String> worlds) {
+        if (Bukkit.isPrimaryThread()) {
+            writeDirty(worlds);
+            return CompletableFuture.completedFuture(null);
+        }
+
+        CompletableFuture<Void> future = new CompletableFuture<>();
+        Bukkit.getScheduler().runTask(plugin, () -> {
+            try {
+                writeDirty(worlds);
+                future.complete(null);
+            } catch (Exception e) {
+                future.completeExceptionally(e);
+            }
+        });
+        return future;
+    }
+
+    // --- Regions
+
+    @Override
+    public @NotNull List<RawRegion> loadRegions() throws IOException {
+        return regionStorage.loadRegions();
+    }
+
+    @Override
+    public void saveRegions(@NotNull Collection<RawRegion> regions) throws IOException {
+        regionStorage.saveRegions(regions);
+    }
+
+    private static class ChunkEntry {
+        private final int x;
+        private final int z;
+
+        // Keyed by packed block coordinates.
+        private final Map<Long, RegenerationProcess> processes = new HashMap<>();
+
+        private boolean dirty = false;
+
+        private ChunkEntry(int x, int z) {
+            this.x = x;
+            this.z = z;
+        }
+    }
+}
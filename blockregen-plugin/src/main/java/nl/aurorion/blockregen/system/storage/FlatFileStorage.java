@@ -0,0 +1,485 @@
+package nl.aurorion.blockregen.system.storage;
+
+import com.google.common.base.Strings;
+import lombok.extern.java.Log;
+import nl.aurorion.blockregen.BlockRegen;
+import nl.aurorion.blockregen.configuration.ConfigFile;
+import nl.aurorion.blockregen.system.regeneration.struct.RegenerationProcess;
+import nl.aurorion.blockregen.system.regeneration.struct.SimpleLocation;
+import nl.aurorion.blockregen.system.region.struct.RawRegion;
+import org.bukkit.configuration.ConfigurationSection;
+import org.bukkit.configuration.file.FileConfiguration;
+import org.jetbrains.annotations.NotNull;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
+
+/**
+ * Processes in a snapshot plus a journal of changes since per world, regions in Regions.yml.
+ * <p>
+ * Each world has its own folder in data/, so worlds can be loaded separately and in parallel.
+ * Optionally the snapshot of a world is split further into a file per region.
+ */
+@Log
+public class FlatFileStorage implements StorageBackend {
+
+    // Snapshot file name when not split by region, and for processes outside of regions when it is.
+    private static final String WORLD_SHARD = "processes";
+    private static final String NO_REGION_SHARD = "_none";
+
+    // Region shards are named region-<name>-<hash>, so region names can't collide with the names above.
+    private static final String REGION_SHARD_PREFIX = "region-";
+
+    private static final String JOURNAL = "changes.journal";
+
+    private final BlockRegen plugin;
+
+    private final BinarySnapshotCodec codec;
+
+    // Snapshots are written in the binary format unless configured otherwise.
+    private final boolean binary;
+
+    // Split snapshots of a world into a file per region.
+    private final boolean byRegion;
+
+    // All journal and snapshot writes happen on the plugin's persistence thread.
+    private final PersistenceExecutor writerThread;
+
+    private final Map<String, ProcessJournal> journals = new ConcurrentHashMap<>();
+
+    // Worlds replaced on full saves and those with stored processes that weren't loaded yet.
+    private final Set<String> loadedWorlds = ConcurrentHashMap.newKeySet();
+    private final Set<String> unloadedWorlds = ConcurrentHashMap.newKeySet();
+
+    // Some of the loaded files are in a different format or layout than configured.
+    private volatile boolean migrate = false;
+
+    private boolean legacyChecked = false;
+
+    public FlatFileStorage(BlockRegen plugin, boolean binary, boolean byRegion) {
+        this.plugin = plugin;
+        this.binary = binary;
+        this.byRegion = byRegion;
+        this.codec = new BinarySnapshotCodec(plugin.getGsonHelper().getGson(), plugin.getVersionManager().getCodecRegistry());
+        this.writerThread = plugin.getPersistenceExecutor();
+    }
+
+    @Override
+    public void open() {
+        // Files are opened on demand.
+    }
+
+    // The persistence thread is flushed and stopped by the plugin afterwards.
+    @Override
+    public void close(long timeout, @NotNull TimeUnit unit) {
+        journals.values().forEach(ProcessJournal::close);
+    }
+
+    private Path getDataFolder() {
+        return plugin.getDataFolder().toPath();
+    }
+
+    private Path getWorldFolder(String worldName) {
+        return getDataFolder().resolve("data").resolve(worldName);
+    }
+
+    private String getExtension() {
+        return binary ? ".dat" : ".json";
+    }
+
+    private ProcessJournal journal(String worldName) {
+        return journals.computeIfAbsent(worldName,
+                name -> new ProcessJournal(getWorldFolder(name).resolve(JOURNAL), plugin.getGsonHelper().getGson(), writerThread));
+    }
+
+    @Override
+    public @NotNull Set<String> getStoredWorlds() throws IOException {
+        migrateLegacy();
+
+        Set<String> worlds = new HashSet<>();
+
+        Path folder = getDataFolder().resolve("data");
+        if (!Files.isDirectory(folder))
+            return worlds;
+
+        try (Stream<Path> stream = Files.list(folder)) {
+            for (Path worldFolder : (Iterable<Path>) stream::iterator) {
+                if (!listShards(worldFolder).isEmpty() || Files.exists(worldFolder.resolve(JOURNAL)))
+                    worlds.add(worldFolder.getFileName().toString());
+            }
+        }
+
+        worlds.stream().filter(world -> !loadedWorlds.contains(world)).forEach(unloadedWorlds::add);
+        return worlds;
+    }
+
+    @Override
+    public @NotNull List<RegenerationProcess> loadProcesses(@NotNull String worldName) throws IOException {
+        migrateLegacy();
+
+        List<RegenerationProcess> processes = readWorld(worldName);
+        loadedWorlds.add(worldName);
+        unloadedWorlds.remove(worldName);
+        return processes;
+    }
+
+    @Override
+    public @NotNull List<RegenerationProcess> loadProcesses() throws IOException {
+        List<RegenerationProcess> processes = new ArrayList<>();
+        for (String worldName : getStoredWorlds()) {
+            processes.addAll(readWorld(worldName));
+        }
+        return processes;
+    }
+
+    // Read all snapshot files of the world and replay its journal on top of them.
+    private List<RegenerationProcess> readWorld(String worldName) throws IOException {
+        Map<SimpleLocation, RegenerationProcess> processes = new LinkedHashMap<>();
+
+        long start = System.currentTimeMillis();
+        long size = 0;
+
+        List<Path> shards = listShards(getWorldFolder(worldName));
+
+        for (Path path : shards) {
+            readShard(path, process -> processes.put(process.getLocation(), process));
+            size += Files.size(path);
+
+            String fileName = path.getFileName().toString();
+            String shardName = fileName.substring(0, fileName.lastIndexOf('.'));
+
+            if (!fileName.endsWith(getExtension()) || !isShardName(shardName))
+                this.migrate = true;
+        }
+
+        int replayed = journal(worldName).replay(processes).join();
+
+        log.info(String.format("Read %d regeneration process(es) of world %s from %d file(s) in %dms (%.1f kB, %d journal record(s)).",
+                processes.size(), worldName, shards.size(), System.currentTimeMillis() - start, size / 1024.0, replayed));
+        return new ArrayList<>(processes.values());
+    }
+
+    // Snapshot files of a world folder, oldest first so the newest wins if a location is in more of them.
+    private List<Path> listShards(Path folder) throws IOException {
+        List<Path> shards = new ArrayList<>();
+
+        if (!Files.isDirectory(folder))
+            return shards;
+
+        try (Stream<Path> stream = Files.list(folder)) {
+            stream.filter(path -> {
+                String fileName = path.getFileName().toString();
+                return fileName.endsWith(".dat") || fileName.endsWith(".json");
+            }).forEach(shards::add);
+        }
+
+        shards.sort(Comparator.comparingLong(path -> path.toFile().lastModified()));
+        return shards;
+    }
+
+    private void readShard(Path path, Consumer<RegenerationProcess> consumer) throws IOException {
+        if (path.getFileName().toString().endsWith(".dat")) {
+            try (InputStream input = new BufferedInputStream(Files.newInputStream(path))) {
+                codec.read(input).forEach(consumer);
+            }
+        } else {
+            // Streamed, one process at a time.
+            plugin.getGsonHelper().readList(path, RegenerationProcess.class, consumer);
+        }
+    }
+
+    // Split Data.dat or Data.json with Data.journal from older versions into world folders.
+    private synchronized void migrateLegacy() throws IOException {
+        if (legacyChecked)
+            return;
+
+        this.legacyChecked = true;
+
+        Path binaryPath = getDataFolder().resolve("Data.dat");
+        Path jsonPath = getDataFolder().resolve("Data.json");
+        Path journalPath = getDataFolder().resolve("Data.journal");
+
+        if (!Files.exists(binaryPath) && !Files.exists(jsonPath) && !Files.exists(journalPath))
+            return;
+
+        long start = System.currentTimeMillis();
+
+        Map<SimpleLocation, RegenerationProcess> processes = new LinkedHashMap<>();
+
+        // Prefer the configured format, fall back to whichever file there is.
+        Path path = binary ? binaryPath : jsonPath;
+        if (!Files.exists(path))
+            path = binary ? jsonPath : binaryPath;
+
+        long oldSize = 0;
+
+        if (Files.exists(path)) {
+            readShard(path, process -> processes.put(process.getLocation(), process));
+            oldSize = Files.size(path);
+        }
+
+        new ProcessJournal(journalPath, plugin.getGsonHelper().getGson(), writerThread).replay(processes).join();
+
+        long oldReadTime = System.currentTimeMillis() - start;
+
+        Map<String, List<RegenerationProcess>> byWorld = groupByWorld(processes.values());
+
+        for (Map.Entry<String, List<RegenerationProcess>> entry : byWorld.entrySet()) {
+            writeWorld(entry.getKey(), entry.getValue());
+        }
+
+        // Read the new files back once to compare them with the old one.
+        long readStart = System.currentTimeMillis();
+        long newSize = 0;
+        int[] read = {0};
+
+        for (String worldName : byWorld.keySet()) {
+            for (Path shard : listShards(getWorldFolder(worldName))) {
+                readShard(shard, process -> read[0]++);
+                newSize += Files.size(shard);
+            }
+        }
+
+        long newReadTime = System.currentTimeMillis() - readStart;
+
+        // Keep the old files around instead of deleting them, but don't read them again.
+        for (Path old : new Path[]{binaryPath, jsonPath}) {
+            if (Files.exists(old))
+                Files.move(old, old.resolveSibling(old.getFileName() + ".old"), StandardCopyOption.REPLACE_EXISTING);
+        }
+        Files.deleteIfExists(journalPath);
+
+        log.info(String.format("Split %d regeneration process(es) from %s into %d world folder(s) in %dms, the old file was renamed to %s.old.",
+                processes.size(), path.getFileName(), byWorld.size(), System.currentTimeMillis() - start, path.getFileName()));
+        log.info(String.format("Migrated %s (%.1f kB, read in %dms) to %s files (%.1f kB, %d process(es) read in %dms).",
+                path.getFileName(), oldSize / 1024.0, oldReadTime, binary ? "binary" : "json", newSize / 1024.0, read[0], newReadTime));
+    }
+
+    @Override
+    public void recordAdd(@NotNull RegenerationProcess process) {
+        journal(process.getWorldName()).recordAdd(process);
+    }
+
+    @Override
+    public void recordRemove(@NotNull SimpleLocation location) {
+        journal(location.getWorld()).recordRemove(location);
+    }
+
+    @Override
+    public int getPendingChanges() {
+        int records = 0;
+        for (ProcessJournal journal : journals.values()) {
+            records += journal.getRecords();
+        }
+        return records;
+    }
+
+    @Override
+    public @NotNull CompletableFuture<Void> flush() {
+        // The journals flush on their own once they catch up.
+        return CompletableFuture.completedFuture(null);
+    }
+
+    @Override
+    public boolean needsFullSave() {
+        return migrate;
+    }
+
+    @Override
+    public long getSize() {
+        try (Stream<Path> stream = Files.walk(getDataFolder().resolve("data"))) {
+            return stream.filter(Files::isRegularFile).mapToLong(path -> path.toFile().length()).sum();
+        } catch (IOException e) {
+            return -1;
+        }
+    }
+
+    @Override
+    public @NotNull CompletableFuture<Void> saveProcesses(@NotNull Collection<RegenerationProcess> processes) {
+        return saveWorlds(processes, loadedWorlds, true);
+    }
+
+    @Override
+    public @NotNull CompletableFuture<Void> saveProcesses(@NotNull Collection<RegenerationProcess> processes, @NotNull Set<String> worlds) {
+        return saveWorlds(processes, worlds, false);
+    }
+
+    private CompletableFuture<Void> saveWorlds(Collection<RegenerationProcess> processes, Set<String> worlds, boolean full) {
+        Map<String, List<RegenerationProcess>> byWorld = groupByWorld(processes);
+
+        // Worlds that had all their processes removed get emptied.
+        for (String worldName : worlds) {
+            byWorld.putIfAbsent(worldName, new ArrayList<>());
+        }
+
+        // Changes of worlds that weren't loaded yet stay in their journal.
+        byWorld.keySet().removeAll(unloadedWorlds);
+
+        long start = System.currentTimeMillis();
+
+        List<CompletableFuture<Void>> futures = new ArrayList<>();
+        for (Map.Entry<String, List<RegenerationProcess>> entry : byWorld.entrySet()) {
+            futures.add(journal(entry.getKey()).compact(() -> writeWorld(entry.getKey(), entry.getValue())));
+        }
+
+        int count = byWorld.values().stream().mapToInt(List::size).sum();
+
+        return CompletableFuture.allOf(futures.toArray(new CompletableFuture[0])).thenRun(() -> {
+            if (full)
+                this.migrate = false;
+            log.info(String.format("Saved %d regeneration process(es) of %d world(s) in %dms.",
+                    count, byWorld.size(), System.currentTimeMillis() - start));
+        });
+    }
+
+    private Map<String, List<RegenerationProcess>> groupByWorld(Collection<RegenerationProcess> processes) {
+        Map<String, List<RegenerationProcess>> byWorld = new HashMap<>();
+        for (RegenerationProcess process : processes) {
+            byWorld.computeIfAbsent(process.getWorldName(), k -> new ArrayList<>()).add(process);
+        }
+        return byWorld;
+    }
+
+    // Write the snapshot files of a world and remove those that are no longer needed.
+    private void writeWorld(String worldName, List<RegenerationProcess> processes) throws IOException {
+        long start = System.currentTimeMillis();
+
+        Path folder = getWorldFolder(worldName);
+        Files.createDirectories(folder);
+
+        Map<String, List<RegenerationProcess>> shards = new HashMap<>();
+        for (RegenerationProcess process : processes) {
+            shards.computeIfAbsent(shardName(process), k -> new ArrayList<>()).add(process);
+        }
+
+        Set<Path> written = new HashSet<>();
+        long size = 0;
+
+        for (Map.Entry<String, List<RegenerationProcess>> entry : shards.entrySet()) {
+            Path path = folder.resolve(entry.getKey() + getExtension());
+            writeShard(path, entry.getValue());
+            written.add(path);
+            size += Files.size(path);
+        }
+
+        // Regions without processes left and files in the previous format or layout.
+        for (Path path : listShards(folder)) {
+            if (!written.contains(path))
+                Files.delete(path);
+        }
+
+        log.fine(String.format("Saved %d regeneration process(es) of world %s to %d file(s) in %dms (%.1f kB).",
+                processes.size(), worldName, written.size(), System.currentTimeMillis() - start, size / 1024.0));
+    }
+
+    private String shardName(RegenerationProcess process) {
+        if (!byRegion)
+            return WORLD_SHARD;
+
+        String regionName = process.getRegionName();
+
+        if (regionName == null)
+            return NO_REGION_SHARD;
+
+        // Region names come from commands, keep them safe to use as file names.
+        // Names are case-sensitive but file systems might not be, the hash of the exact name keeps them apart.
+        return REGION_SHARD_PREFIX + regionName.toLowerCase(Locale.ROOT).replaceAll("[^a-z0-9_.-]", "_")
+                + "-" + String.format("%08x", regionName.hashCode());
+    }
+
+    // Whether the file name fits the configured layout.
+    private boolean isShardName(String name) {
+        if (!byRegion)
+            return name.equals(WORLD_SHARD);
+        return name.equals(NO_REGION_SHARD) || name.startsWith(REGION_SHARD_PREFIX);
+    }
+
+    private void writeShard(Path path, Collection<RegenerationProcess> processes) throws IOException {
+        PersistenceExecutor.writeAtomically(path, temp -> {
+            if (binary) {
+                try (OutputStream output = new BufferedOutputStream(Files.newOutputStream(temp))) {
+                    codec.write(processes, output);
+                }
+            } else {
+                plugin.getGsonHelper().writeList(temp, processes);
+            }
+        });
+    }
+
+    @Override
+    public @NotNull List<RawRegion> loadRegions() {
+        ConfigFile file = plugin.getFiles().getRegions();
+        file.load();
+
+        List<RawRegion> regions = new ArrayList<>();
+
+        ConfigurationSection parentSection = file.getFileConfiguration().getConfigurationSection("Regions");
+
+        if (parentSection == null)
+            return regions;
+
+        for (String name : parentSection.getKeys(false)) {
+            ConfigurationSection section = parentSection.getConfigurationSection(name);
+
+            // Shouldn't happen
+            if (section == null)
+                continue;
+
+            regions.add(new RawRegion(name, section.getString("Min"), section.getString("Max"),
+                    section.getStringList("Presets"), section.getBoolean("All", true), section.getInt("Priority", 0),
+                    section.getString("Shape")));
+        }
+        return regions;
+    }
+
+    // Only called on the persistence thread once loaded.
+    @Override
+    public void saveRegions(@NotNull Collection<RawRegion> regions) throws IOException {
+        ConfigFile file = plugin.getFiles().getRegions();
+        FileConfiguration configuration = file.getFileConfiguration();
+
+        configuration.set("Regions", null);
+
+        ConfigurationSection section = configuration.createSection("Regions");
+
+        for (RawRegion rawRegion : regions) {
+            if (Strings.isNullOrEmpty(rawRegion.getName()))
+                continue;
+
+            ConfigurationSection regionSection = section.createSection(rawRegion.getName());
+
+            regionSection.set("Min", rawRegion.getMin());
+            regionSection.set("Max", rawRegion.getMax());
+
+            regionSection.set("All", rawRegion.isAll());
+            regionSection.set("Priority", rawRegion.getPriority());
+            regionSection.set("Shape", rawRegion.getShape());
+            regionSection.set("Presets", rawRegion.getBlockPresets());
+        }
+
+        String yaml = configuration.saveToString();
+        PersistenceExecutor.writeAtomically(file.getFile().toPath(), temp -> Files.write(temp, yaml.getBytes(StandardCharsets.UTF_8)));
+    }
+}
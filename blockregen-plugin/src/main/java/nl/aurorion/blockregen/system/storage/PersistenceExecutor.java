@@ -0,0 +1,163 @@
+package nl.aurorion.blockregen.system.storage;
+
+import lombok.extern.java.Log;
+import org.jetbrains.annotations.NotNull;
+
+import java.io.IOException;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Single thread for all file writes, so two saves never write the same file at once.
+ * <p>
+ * Plain tasks run in the order they were submitted. Keyed writes are coalesced, a write queued under a key
+ * that didn't start yet is replaced by the newer one, which keeps its place in the queue and its future.
+ */
+@Log
+public class PersistenceExecutor implements Executor {
+
+    private final ThreadPoolExecutor thread;
+
+    // Keyed writes waiting to start.
+    private final Map<String, Pending> pending = new HashMap<>();
+
+    private final AtomicInteger coalesced = new AtomicInteger();
+
+    public PersistenceExecutor(@NotNull String name) {
+        this.thread = new ThreadPoolExecutor(1, 1, 0L, TimeUnit.MILLISECONDS, new LinkedBlockingQueue<>(), runnable -> {
+            Thread thread = new Thread(runnable, name);
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    @Override
+    public void execute(@NotNull Runnable command) {
+        thread.execute(command);
+    }
+
+    /**
+     * Queue a write under the key, replacing one that's still waiting.
+     *
+     * @return Future completed once the latest write under the key is done.
+     */
+    @NotNull
+    public CompletableFuture<Void> submit(@NotNull String key, @NotNull IoTask task) {
+        synchronized (pending) {
+            Pending queued = pending.get(key);
+
+            if (queued != null) {
+                queued.task = task;
+                coalesced.incrementAndGet();
+                return queued.future;
+            }
+
+            Pending entry = new Pending(task);
+            pending.put(key, entry);
+
+            try {
+                thread.execute(() -> run(key, entry));
+            } catch (RejectedExecutionException e) {
+                pending.remove(key);
+                entry.future.completeExceptionally(e);
+            }
+            return entry.future;
+        }
+    }
+
+    private void run(String key, Pending entry) {
+        IoTask task;
+        synchronized (pending) {
+            pending.remove(key);
+            task = entry.task;
+        }
+
+        try {
+            task.run();
+            entry.future.complete(null);
+        } catch (Exception e) {
+            entry.future.completeExceptionally(e);
+        }
+    }
+
+    /**
+     * @return True if nothing is waiting to be written.
+     */
+    public boolean isIdle() {
+        return thread.getQueue().isEmpty();
+    }
+
+    /**
+     * @return Number of writes replaced by a newer one before they started.
+     */
+    public int getCoalesced() {
+        return coalesced.get();
+    }
+
+    /**
+     * Finish queued writes and stop the thread, waiting at most the given time.
+     *
+     * @return False if the writes didn't finish in time.
+     */
+    public boolean shutdown(long timeout, @NotNull TimeUnit unit) {
+        thread.shutdown();
+
+        try {
+            return thread.awaitTermination(timeout, unit);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return false;
+        }
+    }
+
+    /**
+     * Write to a temporary file next to the target and move it over the target once done.
+     * A crash mid-write must not lose the previous file.
+     */
+    public static void writeAtomically(@NotNull Path path, @NotNull FileWriter writer) throws IOException {
+        Path temp = path.resolveSibling(path.getFileName() + ".tmp");
+
+        writer.write(temp);
+        moveAtomically(temp, path);
+    }
+
+    /**
+     * Move a finished file over the target, atomically where the file system supports it.
+     */
+    public static void moveAtomically(@NotNull Path temp, @NotNull Path path) throws IOException {
+        try {
+            Files.move(temp, path, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } catch (AtomicMoveNotSupportedException e) {
+            Files.move(temp, path, StandardCopyOption.REPLACE_EXISTING);
+        }
+    }
+
+    private static class Pending {
+        private final CompletableFuture<Void> future = new CompletableFuture<>();
+
+        private IoTask task;
+
+        private Pending(IoTask task) {
+            this.task = task;
+        }
+    }
+
+    public interface IoTask {
+        void run() throws IOException;
+    }
+
+    public interface FileWriter {
+        void write(Path path) throws IOException;
+    }
+}
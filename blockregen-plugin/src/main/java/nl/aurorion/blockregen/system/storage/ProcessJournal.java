@@ -0,0 +1,226 @@
+package nl.aurorion.blockregen.system.storage;
+
+import com.google.gson.Gson;
+import com.google.gson.JsonElement;
+import com.google.gson.JsonObject;
+import com.google.gson.JsonParseException;
+import com.google.gson.JsonParser;
+import lombok.extern.java.Log;
+import nl.aurorion.blockregen.system.regeneration.struct.RegenerationProcess;
+import nl.aurorion.blockregen.system.regeneration.struct.SimpleLocation;
+import org.jetbrains.annotations.NotNull;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.logging.Level;
+
+/**
+ * Append-only log of process changes since the last snapshot.
+ * <p>
+ * Every registered process is appended as an add record, every removal as a remove record, one json object per line.
+ * Replaying the journal over the snapshot it was started after gives the state at the time of the last record.
+ * Replay is idempotent, so the journal can be truncated any time after a newer snapshot is written.
+ * <p>
+ * All file access happens on the given writer thread, records are written in the order they were submitted.
+ * The thread can be shared with other journals and snapshot writes, it has to be a single thread.
+ */
+@Log
+public class ProcessJournal {
+
+    private final Path path;
+
+    private final Gson gson;
+
+    private final PersistenceExecutor writerThread;
+
+    // Records written since the last compaction.
+    private final AtomicInteger records = new AtomicInteger();
+
+    private BufferedWriter writer;
+
+    public ProcessJournal(@NotNull Path path, @NotNull Gson gson, @NotNull PersistenceExecutor writerThread) {
+        this.path = path;
+        this.gson = gson;
+        this.writerThread = writerThread;
+    }
+
+    /**
+     * Record a process that was added or had its timing changed.
+     */
+    public void recordAdd(@NotNull RegenerationProcess process) {
+        // Capture the time left now, the record might be written a bit later.
+        long timeLeft = process.getRegenerationTime() - System.currentTimeMillis();
+
+        submit(() -> {
+            JsonObject processObject = gson.toJsonTree(process).getAsJsonObject();
+            processObject.addProperty("timeLeft", timeLeft);
+
+            JsonObject record = new JsonObject();
+            record.addProperty("op", "add");
+            record.add("process", processObject);
+            return record;
+        });
+    }
+
+    public void recordRemove(@NotNull SimpleLocation location) {
+        String world = location.getWorld();
+        int x = location.getBlockX(), y = location.getBlockY(), z = location.getBlockZ();
+
+        submit(() -> {
+            JsonObject record = new JsonObject();
+            record.addProperty("op", "remove");
+            record.addProperty("world", world);
+            record.addProperty("x", x);
+            record.addProperty("y", y);
+            record.addProperty("z", z);
+            return record;
+        });
+    }
+
+    private void submit(RecordSupplier supplier) {
+        writerThread.execute(() -> {
+            try {
+                if (writer == null) {
+                    Files.createDirectories(path.getParent());
+                    this.writer = Files.newBufferedWriter(path, StandardCharsets.UTF_8, StandardOpenOption.CREATE, StandardOpenOption.APPEND);
+                }
+
+                // JsonElement#toString is compact, one record per line.
+                writer.write(supplier.get().toString());
+                writer.newLine();
+                records.incrementAndGet();
+
+                // Coalesce bursts into a single flush.
+                if (writerThread.isIdle())
+                    writer.flush();
+            } catch (IOException e) {
+                log.log(Level.SEVERE, "Could not write to the journal", e);
+            }
+        });
+    }
+
+    /**
+     * Write a snapshot with the given writer and truncate the journal once it's done.
+     * Records submitted after this call end up in the new journal.
+     * A compaction that didn't start yet is replaced by this one.
+     */
+    @NotNull
+    public CompletableFuture<Void> compact(@NotNull SnapshotWriter snapshotWriter) {
+        return writerThread.submit("compact " + path, () -> {
+            snapshotWriter.write();
+
+            if (writer != null) {
+                writer.close();
+                this.writer = null;
+            }
+
+            Files.deleteIfExists(path);
+            records.set(0);
+        });
+    }
+
+    /**
+     * Apply the journal onto processes loaded from the snapshot, keyed by their location.
+     *
+     * @return Future with the number of records replayed.
+     */
+    @NotNull
+    public CompletableFuture<Integer> replay(@NotNull Map<SimpleLocation, RegenerationProcess> processes) {
+        return CompletableFuture.supplyAsync(() -> {
+            try {
+                return readRecords(processes);
+            } catch (IOException e) {
+                throw new RuntimeException(e);
+            }
+        }, writerThread);
+    }
+
+    private int readRecords(Map<SimpleLocation, RegenerationProcess> processes) throws IOException {
+        if (!Files.exists(path))
+            return 0;
+
+        int count = 0;
+
+        try (BufferedReader reader = Files.newBufferedReader(path, StandardCharsets.UTF_8)) {
+            String line;
+            while ((line = reader.readLine()) != null) {
+                if (line.isEmpty())
+                    continue;
+
+                JsonObject record;
+                try {
+                    record = new JsonParser().parse(line).getAsJsonObject();
+                } catch (JsonParseException | IllegalStateException e) {
+                    // Most likely cut off by a crash, everything before it is still valid.
+                    log.warning("Skipping a corrupted journal record: " + line);
+                    continue;
+                }
+
+                String op = record.get("op").getAsString();
+
+                if (op.equals("add")) {
+                    RegenerationProcess process = gson.fromJson(record.get("process"), RegenerationProcess.class);
+                    processes.put(process.getLocation(), process);
+                } else if (op.equals("remove")) {
+                    processes.remove(locationOf(record));
+                }
+                count++;
+            }
+        }
+
+        records.set(count);
+        return count;
+    }
+
+    private SimpleLocation locationOf(JsonObject record) {
+        // Matches SimpleLocation#equals, which is all that's needed for the lookup.
+        JsonObject location = new JsonObject();
+        location.add("world", record.get("world"));
+        location.add("x", record.get("x"));
+        location.add("y", record.get("y"));
+        location.add("z", record.get("z"));
+        return gson.fromJson(location, SimpleLocation.class);
+    }
+
+    /**
+     * @return Number of records since the last compaction.
+     */
+    public int getRecords() {
+        return records.get();
+    }
+
+    /**
+     * Close the file once pending records are written. The writer thread is left running.
+     */
+    public void close() {
+        writerThread.execute(() -> {
+            try {
+                if (writer != null) {
+                    writer.close();
+                    this.writer = null;
+                }
+            } catch (IOException e) {
+                log.log(Level.SEVERE, "Could not close the journal", e);
+            }
+        });
+    }
+
+    private interface RecordSupplier {
+        JsonElement get();
+    }
+
+    /**
+     * Writes the full snapshot. Runs on the writer thread.
+     */
+    public interface SnapshotWriter {
+        void write() throws IOException;
+    }
+}
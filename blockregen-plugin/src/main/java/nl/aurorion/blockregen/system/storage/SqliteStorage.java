@@ -0,0 +1,473 @@
+package nl.aurorion.blockregen.system.storage;
+
+import com.cryptomorin.xseries.XMaterial;
+import com.google.gson.Gson;
+import com.google.gson.reflect.TypeToken;
+import lombok.extern.java.Log;
+import nl.aurorion.blockregen.BlockRegen;
+import nl.aurorion.blockregen.system.regeneration.struct.RegenerationProcess;
+import nl.aurorion.blockregen.system.regeneration.struct.SimpleLocation;
+import nl.aurorion.blockregen.system.region.struct.RawRegion;
+import nl.aurorion.blockregen.version.api.NodeData;
+import org.jetbrains.annotations.NotNull;
+
+import java.io.IOException;
+import java.lang.reflect.Type;
+import java.nio.file.Path;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.logging.Level;
+
+/**
+ * Embedded SQLite database in Data.db, using the driver bundled with the server.
+ * <p>
+ * Process changes are coalesced per location and written in batched transactions shortly after they happen.
+ * The connection is only ever used from a single database thread.
+ */
+@Log
+public class SqliteStorage implements StorageBackend {
+
+    private static final Type STRING_LIST = new TypeToken<List<String>>() {
+    }.getType();
+
+    // Delay before recorded changes are written, lets bursts end up in a single transaction.
+    private static final long FLUSH_DELAY = 1000L;
+
+    private final BlockRegen plugin;
+
+    private final Gson gson;
+
+    private final ScheduledExecutorService databaseThread = Executors.newSingleThreadScheduledExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "BlockRegen Database");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    // Latest change per location, a null process is a removal.
+    private final Object pendingLock = new Object();
+    private Map<SimpleLocation, Change> pending = new HashMap<>();
+
+    private final AtomicInteger changes = new AtomicInteger();
+
+    private Connection connection;
+
+    // Worlds replaced on full saves and those with stored processes that weren't loaded yet.
+    private final Set<String> loadedWorlds = ConcurrentHashMap.newKeySet();
+    private final Set<String> unloadedWorlds = ConcurrentHashMap.newKeySet();
+
+    public SqliteStorage(BlockRegen plugin) {
+        this.plugin = plugin;
+        this.gson = plugin.getGsonHelper().getGson();
+    }
+
+    @Override
+    public void open() throws IOException {
+        call(() -> {
+            Class.forName("org.sqlite.JDBC");
+
+            this.connection = DriverManager.getConnection("jdbc:sqlite:" + plugin.getDataFolder().toPath().resolve("Data.db"));
+
+            try (Statement statement = connection.createStatement()) {
+                statement.execute("PRAGMA journal_mode=WAL");
+                statement.execute("CREATE TABLE IF NOT EXISTS processes (" +
+                        "world TEXT NOT NULL, x INTEGER NOT NULL, y INTEGER NOT NULL, z INTEGER NOT NULL, " +
+                        "chunk_x INTEGER NOT NULL, chunk_z INTEGER NOT NULL, " +
+                        "preset TEXT NOT NULL, region TEXT, material TEXT, node_data TEXT, time_left INTEGER NOT NULL, " +
+                        "PRIMARY KEY (world, x, y, z))");
+                statement.execute("CREATE INDEX IF NOT EXISTS processes_chunk ON processes (world, chunk_x, chunk_z)");
+                statement.execute("CREATE INDEX IF NOT EXISTS processes_region ON processes (region)");
+                statement.execute("CREATE TABLE IF NOT EXISTS regions (" +
+                        "name TEXT PRIMARY KEY, min TEXT, max TEXT, all_presets INTEGER NOT NULL, presets TEXT NOT NULL, " +
+                        "priority INTEGER NOT NULL DEFAULT 0, shape TEXT)");
+
+                // Added later, databases created before don't have them.
+                addColumn(statement, "regions", "priority", "INTEGER NOT NULL DEFAULT 0");
+                addColumn(statement, "regions", "shape", "TEXT");
+            }
+            return null;
+        });
+        log.info("Opened the SQLite database.");
+    }
+
+    @Override
+    public void close(long timeout, @NotNull TimeUnit unit) {
+        databaseThread.execute(() -> {
+            try {
+                writePending();
+                connection.close();
+            } catch (SQLException e) {
+                log.log(Level.SEVERE, "Could not close the database", e);
+            }
+        });
+        databaseThread.shutdown();
+
+        try {
+            if (!databaseThread.awaitTermination(timeout, unit))
+                log.warning("Database did not finish writing in time.");
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    // --- Processes
+
+    @Override
+    public @NotNull Set<String> getStoredWorlds() throws IOException {
+        return call(() -> {
+            Set<String> worlds = new HashSet<>();
+
+            try (Statement statement = connection.createStatement();
+                 ResultSet result = statement.executeQuery("SELECT DISTINCT world FROM processes")) {
+                while (result.next()) {
+                    worlds.add(result.getString("world"));
+                }
+            }
+            worlds.stream().filter(world -> !loadedWorlds.contains(world)).forEach(unloadedWorlds::add);
+            return worlds;
+        });
+    }
+
+    @Override
+    public @NotNull List<RegenerationProcess> loadProcesses(@NotNull String worldName) throws IOException {
+        List<RegenerationProcess> processes = call(() -> query("SELECT * FROM processes WHERE world = ?", worldName));
+        loadedWorlds.add(worldName);
+        unloadedWorlds.remove(worldName);
+        return processes;
+    }
+
+    @Override
+    public @NotNull List<RegenerationProcess> loadProcesses() throws IOException {
+        return call(() -> query("SELECT * FROM processes"));
+    }
+
+    @Override
+    public @NotNull List<RegenerationProcess> queryChunk(@NotNull String worldName, int chunkX, int chunkZ) throws IOException {
+        return call(() -> query("SELECT * FROM processes WHERE world = ? AND chunk_x = ? AND chunk_z = ?", worldName, chunkX, chunkZ));
+    }
+
+    @Override
+    public @NotNull List<RegenerationProcess> queryRegion(@NotNull String regionName) throws IOException {
+        return call(() -> query("SELECT * FROM processes WHERE region = ?", regionName));
+    }
+
+    private List<RegenerationProcess> query(String sql, Object... parameters) throws SQLException {
+        // Apply what's pending first, queries should see recorded changes.
+        writePending();
+
+        List<RegenerationProcess> processes = new ArrayList<>();
+
+        try (PreparedStatement statement = connection.prepareStatement(sql)) {
+            for (int i = 0; i < parameters.length; i++) {
+                statement.setObject(i + 1, parameters[i]);
+            }
+
+            try (ResultSet result = statement.executeQuery()) {
+                while (result.next()) {
+                    String material = result.getString("material");
+                    String nodeData = result.getString("node_data");
+
+                    processes.add(new RegenerationProcess(
+                            new SimpleLocation(result.getString("world"), result.getInt("x"), result.getInt("y"), result.getInt("z")),
+                            material == null ? null : XMaterial.matchXMaterial(material).orElse(null),
+                            nodeData == null ? null : gson.fromJson(nodeData, NodeData.class),
+                            result.getString("preset"),
+                            result.getString("region"),
+                            result.getLong("time_left")));
+                }
+            }
+        }
+        return processes;
+    }
+
+    @Override
+    public void recordAdd(@NotNull RegenerationProcess process) {
+        record(process.getLocation(), new Change(process, process.getRegenerationTime() - System.currentTimeMillis()));
+    }
+
+    @Override
+    public void recordRemove(@NotNull SimpleLocation location) {
+        record(location, new Change(null, 0));
+    }
+
+    private void record(SimpleLocation location, Change change) {
+        boolean schedule;
+
+        synchronized (pendingLock) {
+            schedule = pending.isEmpty();
+            pending.put(location, change);
+        }
+
+        changes.incrementAndGet();
+
+        if (schedule)
+            databaseThread.schedule(this::flushPending, FLUSH_DELAY, TimeUnit.MILLISECONDS);
+    }
+
+    private void flushPending() {
+        try {
+            writePending();
+        } catch (SQLException e) {
+            log.log(Level.SEVERE, "Could not write process changes to the database", e);
+        }
+    }
+
+    private Map<SimpleLocation, Change> takePending() {
+        synchronized (pendingLock) {
+            Map<SimpleLocation, Change> taken = pending;
+            this.pending = new HashMap<>();
+            return taken;
+        }
+    }
+
+    // Upsert and delete everything pending in one transaction.
+    private void writePending() throws SQLException {
+        Map<SimpleLocation, Change> taken = takePending();
+
+        if (taken.isEmpty())
+            return;
+
+        transaction(() -> {
+            try (PreparedStatement upsert = prepareUpsert();
+                 PreparedStatement delete = connection.prepareStatement("DELETE FROM processes WHERE world = ? AND x = ? AND y = ? AND z = ?")) {
+
+                for (Map.Entry<SimpleLocation, Change> entry : taken.entrySet()) {
+                    Change change = entry.getValue();
+
+                    if (change.process == null) {
+                        SimpleLocation location = entry.getKey();
+                        delete.setString(1, location.getWorld());
+                        delete.setInt(2, location.getBlockX());
+                        delete.setInt(3, location.getBlockY());
+                        delete.setInt(4, location.getBlockZ());
+                        delete.addBatch();
+                    } else {
+                        bindUpsert(upsert, change.process, change.timeLeft);
+                        upsert.addBatch();
+                    }
+                }
+
+                upsert.executeBatch();
+                delete.executeBatch();
+            }
+            return null;
+        });
+
+        log.fine("Wrote " + taken.size() + " process change(s) to the database.");
+    }
+
+    private PreparedStatement prepareUpsert() throws SQLException {
+        return connection.prepareStatement("INSERT OR REPLACE INTO processes " +
+                "(world, x, y, z, chunk_x, chunk_z, preset, region, material, node_data, time_left) VALUES (?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?)");
+    }
+
+    private void bindUpsert(PreparedStatement statement, RegenerationProcess process, long timeLeft) throws SQLException {
+        SimpleLocation location = process.getLocation();
+
+        statement.setString(1, location.getWorld());
+        statement.setInt(2, location.getBlockX());
+        statement.setInt(3, location.getBlockY());
+        statement.setInt(4, location.getBlockZ());
+        statement.setInt(5, location.getBlockX() >> 4);
+        statement.setInt(6, location.getBlockZ() >> 4);
+        statement.setString(7, process.getPresetName());
+        statement.setString(8, process.getRegionName());
+        statement.setString(9, process.getOriginalMaterial() == null ? null : process.getOriginalMaterial().name());
+        // JsonElement#toString is compact.
+        statement.setString(10, process.getOriginalData() == null ? null : gson.toJsonTree(process.getOriginalData(), NodeData.class).toString());
+        statement.setLong(11, timeLeft);
+    }
+
+    @Override
+    public int getPendingChanges() {
+        return changes.get();
+    }
+
+    @Override
+    public @NotNull CompletableFuture<Void> saveProcesses(@NotNull Collection<RegenerationProcess> processes) {
+        return saveWorlds(processes, loadedWorlds);
+    }
+
+    @Override
+    public @NotNull CompletableFuture<Void> saveProcesses(@NotNull Collection<RegenerationProcess> processes, @NotNull Set<String> worlds) {
+        return saveWorlds(processes, worlds);
+    }
+
+    private CompletableFuture<Void> saveWorlds(Collection<RegenerationProcess> processes, Set<String> replaced) {
+        return CompletableFuture.runAsync(() -> {
+            long start = System.currentTimeMillis();
+
+            try {
+                // Worlds that aren't replaced below still need their recorded changes.
+                writePending();
+                changes.set(0);
+
+                int count = transaction(() -> {
+                    int written = 0;
+
+                    Set<String> worlds = new HashSet<>(replaced);
+                    for (RegenerationProcess process : processes) {
+                        worlds.add(process.getWorldName());
+                    }
+                    // Rows of worlds that weren't loaded yet stay.
+                    worlds.removeAll(unloadedWorlds);
+
+                    try (PreparedStatement delete = connection.prepareStatement("DELETE FROM processes WHERE world = ?")) {
+                        for (String world : worlds) {
+                            delete.setString(1, world);
+                            delete.addBatch();
+                        }
+                        delete.executeBatch();
+                    }
+
+                    try (PreparedStatement upsert = prepareUpsert()) {
+                        for (RegenerationProcess process : processes) {
+                            if (!worlds.contains(process.getWorldName()))
+                                continue;
+
+                            bindUpsert(upsert, process, process.getTimeLeft());
+                            upsert.addBatch();
+                            written++;
+                        }
+                        upsert.executeBatch();
+                    }
+                    return written;
+                });
+
+                log.info(String.format("Saved %d regeneration process(es) to the database in %dms.", count, System.currentTimeMillis() - start));
+            } catch (SQLException e) {
+                throw new RuntimeException(e);
+            }
+        }, databaseThread);
+    }
+
+    @Override
+    public long getSize() {
+        Path path = plugin.getDataFolder().toPath().resolve("Data.db");
+        // Recent transactions live in the write-ahead log until a checkpoint.
+        return path.toFile().length() + path.resolveSibling("Data.db-wal").toFile().length();
+    }
+
+    @Override
+    public @NotNull CompletableFuture<Void> flush() {
+        return CompletableFuture.runAsync(this::flushPending, databaseThread);
+    }
+
+    // --- Regions
+
+    @Override
+    public @NotNull List<RawRegion> loadRegions() throws IOException {
+        return call(() -> {
+            List<RawRegion> regions = new ArrayList<>();
+
+            try (Statement statement = connection.createStatement();
+                 ResultSet result = statement.executeQuery("SELECT * FROM regions")) {
+                while (result.next()) {
+                    List<String> presets = gson.fromJson(result.getString("presets"), STRING_LIST);
+
+                    regions.add(new RawRegion(result.getString("name"), result.getString("min"), result.getString("max"),
+                            presets == null ? new ArrayList<>() : presets, result.getBoolean("all_presets"), result.getInt("priority"),
+                            result.getString("shape")));
+                }
+            }
+            return regions;
+        });
+    }
+
+    @Override
+    public void saveRegions(@NotNull Collection<RawRegion> regions) throws IOException {
+        call(() -> transaction(() -> {
+            try (Statement statement = connection.createStatement()) {
+                statement.executeUpdate("DELETE FROM regions");
+            }
+
+            try (PreparedStatement insert = connection.prepareStatement("INSERT INTO regions (name, min, max, all_presets, presets, priority, shape) VALUES (?, ?, ?, ?, ?, ?, ?)")) {
+                for (RawRegion region : regions) {
+                    insert.setString(1, region.getName());
+                    insert.setString(2, region.getMin());
+                    insert.setString(3, region.getMax());
+                    insert.setBoolean(4, region.isAll());
+                    insert.setString(5, gson.toJsonTree(region.getBlockPresets(), STRING_LIST).toString());
+                    insert.setInt(6, region.getPriority());
+                    insert.setString(7, region.getShape());
+                    insert.addBatch();
+                }
+                insert.executeBatch();
+            }
+            return null;
+        }));
+    }
+
+    // --- Helpers
+
+    private static void addColumn(Statement statement, String table, String column, String definition) throws SQLException {
+        try (ResultSet columns = statement.executeQuery("PRAGMA table_info(" + table + ")")) {
+            while (columns.next()) {
+                if (column.equals(columns.getString("name")))
+                    return;
+            }
+        }
+        statement.execute("ALTER TABLE " + table + " ADD COLUMN " + column + " " + definition);
+    }
+
+    private <T> T transaction(SqlCallable<T> callable) throws SQLException {
+        connection.setAutoCommit(false);
+        try {
+            T result = callable.call();
+            connection.commit();
+            return result;
+        } catch (SQLException | RuntimeException e) {
+            connection.rollback();
+            throw e;
+        } finally {
+            connection.setAutoCommit(true);
+        }
+    }
+
+    // Run on the database thread and wait for the result.
+    private <T> T call(ThrowingCallable<T> callable) throws IOException {
+        try {
+            return databaseThread.submit(callable::call).get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException(e);
+        } catch (ExecutionException e) {
+            throw new IOException(e.getCause());
+        }
+    }
+
+    private interface SqlCallable<T> {
+        T call() throws SQLException;
+    }
+
+    private interface ThrowingCallable<T> {
+        T call() throws Exception;
+    }
+
+    private static class Change {
+        private final RegenerationProcess process;
+        private final long timeLeft;
+
+        private Change(RegenerationProcess process, long timeLeft) {
+            this.process = process;
+            this.timeLeft = timeLeft;
+        }
+    }
+}
@@ -0,0 +1,123 @@
+package nl.aurorion.blockregen.system.storage;
+
+import nl.aurorion.blockregen.system.regeneration.struct.RegenerationProcess;
+import nl.aurorion.blockregen.system.regeneration.struct.SimpleLocation;
+import nl.aurorion.blockregen.system.region.struct.RawRegion;
+import org.jetbrains.annotations.NotNull;
+
+import java.io.IOException;
+import java.util.Collection;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+
+/**
+ * Persistence of regeneration processes and regions.
+ * <p>
+ * Process changes are reported as they happen, implementations decide how soon to write them.
+ * Loading and querying blocks, call it off the main thread.
+ */
+public interface StorageBackend {
+
+    void open() throws IOException;
+
+    /**
+     * Write out pending changes and release resources, waiting at most the given time.
+     */
+    void close(long timeout, @NotNull TimeUnit unit);
+
+    // --- Processes
+
+    /**
+     * @return Names of worlds with saved processes.
+     */
+    @NotNull
+    Set<String> getStoredWorlds() throws IOException;
+
+    /**
+     * Load saved processes of a single world. Presets and locations are not resolved yet.
+     * <p>
+     * Until then, stored processes of the world are left as they are by {@link #saveProcesses(Collection)}.
+     */
+    @NotNull
+    List<RegenerationProcess> loadProcesses(@NotNull String worldName) throws IOException;
+
+    /**
+     * Load all saved processes without marking any world as loaded.
+     */
+    @NotNull
+    List<RegenerationProcess> loadProcesses() throws IOException;
+
+    /**
+     * A process was added or had its timing changed.
+     */
+    void recordAdd(@NotNull RegenerationProcess process);
+
+    void recordRemove(@NotNull SimpleLocation location);
+
+    /**
+     * @return Number of changes recorded since the last full save.
+     */
+    int getPendingChanges();
+
+    /**
+     * Replace stored processes with the given ones. Worlds with stored processes that weren't loaded yet are left as they are.
+     */
+    @NotNull
+    CompletableFuture<Void> saveProcesses(@NotNull Collection<RegenerationProcess> processes);
+
+    /**
+     * Replace stored processes of the given worlds only, others are left as they are.
+     *
+     * @param processes Processes of those worlds.
+     */
+    @NotNull
+    CompletableFuture<Void> saveProcesses(@NotNull Collection<RegenerationProcess> processes, @NotNull Set<String> worlds);
+
+    /**
+     * Write out recorded changes without a full save.
+     */
+    @NotNull
+    CompletableFuture<Void> flush();
+
+    /**
+     * @return True if the loaded data should be saved in full again, ex. after it was migrated from an older format.
+     */
+    default boolean needsFullSave() {
+        return false;
+    }
+
+    /**
+     * @return Size of the stored processes in bytes, -1 if unknown.
+     */
+    default long getSize() {
+        return -1;
+    }
+
+    // --- Regions
+
+    @NotNull
+    List<RawRegion> loadRegions() throws IOException;
+
+    void saveRegions(@NotNull Collection<RawRegion> regions) throws IOException;
+
+    // --- Queries, usable without loading the processes into the manager.
+
+    @NotNull
+    default List<RegenerationProcess> queryChunk(@NotNull String worldName, int chunkX, int chunkZ) throws IOException {
+        return loadProcesses().stream()
+                .filter(process -> worldName.equals(process.getWorldName())
+                        && process.getLocation().getBlockX() >> 4 == chunkX
+                        && process.getLocation().getBlockZ() >> 4 == chunkZ)
+                .collect(Collectors.toList());
+    }
+
+    @NotNull
+    default List<RegenerationProcess> queryRegion(@NotNull String regionName) throws IOException {
+        return loadProcesses().stream()
+                .filter(process -> regionName.equals(process.getRegionName()))
+                .collect(Collectors.toList());
+    }
+}
@@ -0,0 +1,200 @@
+package nl.aurorion.blockregen.util;
+
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+import java.util.concurrent.locks.StampedLock;
+import java.util.function.Consumer;
+
+/**
+ * Thread-safe map with primitive long keys, striped over {@link LongObjectMap}s.
+ * <p>
+ * Lookups use optimistic reads and never block, writers only lock a single stripe.
+ * Iteration is weakly consistent, each stripe is snapshot separately and no lock is held while the consumer runs.
+ */
+public class ConcurrentLongObjectMap<V> {
+
+    private static final int STRIPES = 64;
+
+    private final Stripe<V>[] stripes;
+
+    @SuppressWarnings("unchecked")
+    public ConcurrentLongObjectMap() {
+        this.stripes = new Stripe[STRIPES];
+        for (int i = 0; i < STRIPES; i++) {
+            stripes[i] = new Stripe<>();
+        }
+    }
+
+    private Stripe<V> stripe(long key) {
+        long h = key * 0xC2B2AE3D27D4EB4FL;
+        return stripes[(int) (h >>> 58)];
+    }
+
+    @Nullable
+    public V get(long key) {
+        Stripe<V> stripe = stripe(key);
+
+        long stamp = stripe.lock.tryOptimisticRead();
+        if (stamp != 0L) {
+            try {
+                V value = stripe.map.get(key);
+                if (stripe.lock.validate(stamp))
+                    return value;
+            } catch (RuntimeException ignored) {
+                // Torn read during a concurrent resize, retry under the read lock.
+            }
+        }
+
+        stamp = stripe.lock.readLock();
+        try {
+            return stripe.map.get(key);
+        } finally {
+            stripe.lock.unlockRead(stamp);
+        }
+    }
+
+    public boolean containsKey(long key) {
+        return get(key) != null;
+    }
+
+    @Nullable
+    public V put(long key, @NotNull V value) {
+        Stripe<V> stripe = stripe(key);
+        long stamp = stripe.lock.writeLock();
+        try {
+            V result = stripe.map.put(key, value);
+            stripe.size = stripe.map.size();
+            return result;
+        } finally {
+            stripe.lock.unlockWrite(stamp);
+        }
+    }
+
+    /**
+     * @return Value already mapped to the key, null if the value was inserted.
+     */
+    @Nullable
+    public V putIfAbsent(long key, @NotNull V value) {
+        Stripe<V> stripe = stripe(key);
+        long stamp = stripe.lock.writeLock();
+        try {
+            V result = stripe.map.putIfAbsent(key, value);
+            stripe.size = stripe.map.size();
+            return result;
+        } finally {
+            stripe.lock.unlockWrite(stamp);
+        }
+    }
+
+    @Nullable
+    public V remove(long key) {
+        Stripe<V> stripe = stripe(key);
+        long stamp = stripe.lock.writeLock();
+        try {
+            V result = stripe.map.remove(key);
+            stripe.size = stripe.map.size();
+            return result;
+        } finally {
+            stripe.lock.unlockWrite(stamp);
+        }
+    }
+
+    /**
+     * Remove the key only if it's mapped to the given value.
+     */
+    public boolean remove(long key, @NotNull Object value) {
+        Stripe<V> stripe = stripe(key);
+        long stamp = stripe.lock.writeLock();
+        try {
+            boolean result = stripe.map.remove(key, value);
+            stripe.size = stripe.map.size();
+            return result;
+        } finally {
+            stripe.lock.unlockWrite(stamp);
+        }
+    }
+
+    public void clear() {
+        for (Stripe<V> stripe : stripes) {
+            long stamp = stripe.lock.writeLock();
+            try {
+                stripe.map.clear();
+                stripe.size = 0;
+            } finally {
+                stripe.lock.unlockWrite(stamp);
+            }
+        }
+    }
+
+    public int size() {
+        int size = 0;
+        for (Stripe<V> stripe : stripes) {
+            size += stripe.size;
+        }
+        return size;
+    }
+
+    public boolean isEmpty() {
+        return size() == 0;
+    }
+
+    public void forEach(@NotNull Consumer<? super V> consumer) {
+        Iterator<V> iterator = iterator();
+        while (iterator.hasNext()) {
+            consumer.accept(iterator.next());
+        }
+    }
+
+    /**
+     * Weakly consistent iterator over the values. Doesn't support removal.
+     */
+    @NotNull
+    public Iterator<V> iterator() {
+        return new Iterator<V>() {
+            private int stripeIndex = 0;
+
+            private Object[] current = new Object[0];
+            private int index = 0;
+
+            @Override
+            public boolean hasNext() {
+                while (index >= current.length) {
+                    if (stripeIndex >= STRIPES)
+                        return false;
+                    current = stripes[stripeIndex++].values();
+                    index = 0;
+                }
+                return true;
+            }
+
+            @Override
+            @SuppressWarnings("unchecked")
+            public V next() {
+                if (!hasNext())
+                    throw new NoSuchElementException();
+                return (V) current[index++];
+            }
+        };
+    }
+
+    private static class Stripe<V> {
+        private final StampedLock lock = new StampedLock();
+
+        private final LongObjectMap<V> map = new LongObjectMap<>();
+
+        // Mirrors map#size() so it can be read without locking.
+        private volatile int size;
+
+        private Object[] values() {
+            long stamp = lock.readLock();
+            try {
+                return map.toArray();
+            } finally {
+                lock.unlockRead(stamp);
+            }
+        }
+    }
+}
@@ -5,6 +5,7 @@ import lombok.experimental.UtilityClass;
 import org.bukkit.Bukkit;
 import org.bukkit.Location;
 import org.bukkit.World;
+import org.bukkit.block.Block;
 import org.jetbrains.annotations.NotNull;
 import org.jetbrains.annotations.Nullable;
 
@@ -34,4 +35,33 @@ public class LocationUtil {
         String[] arr = str.split(";");
         return Bukkit.getWorld(arr[0]) != null;
     }
+
+    /**
+     * Pack block coordinates into a single long. 26 bits for x and z, 12 bits for y.
+     */
+    public long blockKey(int x, int y, int z) {
+        return ((long) (x & 0x3FFFFFF) << 38) | ((long) (z & 0x3FFFFFF) << 12) | (y & 0xFFF);
+    }
+
+    public long blockKey(@NotNull Block block) {
+        return blockKey(block.getX(), block.getY(), block.getZ());
+    }
+
+    /**
+     * Pack chunk coordinates into a single long.
+     */
+    public long chunkKey(int chunkX, int chunkZ) {
+        return ((long) chunkX << 32) | (chunkZ & 0xFFFFFFFFL);
+    }
+
+    /**
+     * Lowest block y of the world, worlds start at 0 before 1.17.
+     */
+    public int getMinHeight(@NotNull World world) {
+        try {
+            return world.getMinHeight();
+        } catch (NoSuchMethodError e) {
+            return 0;
+        }
+    }
 }
@@ -0,0 +1,208 @@
+package nl.aurorion.blockregen.util;
+
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.util.Arrays;
+import java.util.function.Consumer;
+
+/**
+ * Open addressing hash map with primitive long keys.
+ * <p>
+ * Avoids boxing the keys on lookups, which matters on hot paths like block break handling.
+ * Null values are not permitted. Not thread-safe.
+ */
+public class LongObjectMap<V> {
+
+    private static final int DEFAULT_CAPACITY = 16;
+
+    private static final float LOAD_FACTOR = 0.75f;
+
+    private long[] keys;
+    private Object[] values;
+
+    private int mask;
+    private int size;
+    private int threshold;
+
+    public LongObjectMap() {
+        this(DEFAULT_CAPACITY);
+    }
+
+    public LongObjectMap(int expected) {
+        allocate(tableSize(expected));
+    }
+
+    private static int tableSize(int expected) {
+        int capacity = Math.max(DEFAULT_CAPACITY, (int) Math.ceil(expected / LOAD_FACTOR));
+        return Integer.highestOneBit(capacity - 1) << 1;
+    }
+
+    private static int mix(long key) {
+        long h = key * 0x9E3779B97F4A7C15L;
+        h ^= h >>> 32;
+        return (int) (h ^ (h >>> 16));
+    }
+
+    private void allocate(int capacity) {
+        this.keys = new long[capacity];
+        this.values = new Object[capacity];
+        this.mask = capacity - 1;
+        this.threshold = (int) (capacity * LOAD_FACTOR);
+    }
+
+    private int indexOf(long key) {
+        int i = mix(key) & mask;
+        while (values[i] != null) {
+            if (keys[i] == key)
+                return i;
+            i = (i + 1) & mask;
+        }
+        return -1;
+    }
+
+    @Nullable
+    @SuppressWarnings("unchecked")
+    public V get(long key) {
+        int i = indexOf(key);
+        return i < 0 ? null : (V) values[i];
+    }
+
+    public boolean containsKey(long key) {
+        return indexOf(key) >= 0;
+    }
+
+    /**
+     * @return Previous value mapped to the key or null.
+     */
+    @Nullable
+    @SuppressWarnings("unchecked")
+    public V put(long key, @NotNull V value) {
+        int i = mix(key) & mask;
+        while (values[i] != null) {
+            if (keys[i] == key) {
+                V previous = (V) values[i];
+                values[i] = value;
+                return previous;
+            }
+            i = (i + 1) & mask;
+        }
+
+        keys[i] = key;
+        values[i] = value;
+
+        if (++size > threshold)
+            rehash(keys.length << 1);
+        return null;
+    }
+
+    /**
+     * @return Value already mapped to the key, null if the value was inserted.
+     */
+    @Nullable
+    public V putIfAbsent(long key, @NotNull V value) {
+        V current = get(key);
+        if (current != null)
+            return current;
+        put(key, value);
+        return null;
+    }
+
+    @Nullable
+    @SuppressWarnings("unchecked")
+    public V remove(long key) {
+        int i = indexOf(key);
+        if (i < 0)
+            return null;
+
+        V previous = (V) values[i];
+        removeAt(i);
+        return previous;
+    }
+
+    /**
+     * Remove the key only if it's mapped to the given value.
+     */
+    public boolean remove(long key, @NotNull Object value) {
+        int i = indexOf(key);
+        if (i < 0 || !value.equals(values[i]))
+            return false;
+
+        removeAt(i);
+        return true;
+    }
+
+    // Backward shift deletion, keeps probe sequences intact without tombstones.
+    private void removeAt(int i) {
+        size--;
+
+        int last = i;
+        int slot = (i + 1) & mask;
+        while (values[slot] != null) {
+            int ideal = mix(keys[slot]) & mask;
+            // Move the entry back if its ideal slot doesn't lie cyclically in (last, slot].
+            if (((slot - ideal) & mask) >= ((slot - last) & mask)) {
+                keys[last] = keys[slot];
+                values[last] = values[slot];
+                last = slot;
+            }
+            slot = (slot + 1) & mask;
+        }
+
+        values[last] = null;
+    }
+
+    private void rehash(int capacity) {
+        long[] oldKeys = this.keys;
+        Object[] oldValues = this.values;
+
+        allocate(capacity);
+
+        for (int i = 0; i < oldValues.length; i++) {
+            if (oldValues[i] == null)
+                continue;
+
+            int j = mix(oldKeys[i]) & mask;
+            while (values[j] != null)
+                j = (j + 1) & mask;
+
+            keys[j] = oldKeys[i];
+            values[j] = oldValues[i];
+        }
+    }
+
+    @SuppressWarnings("unchecked")
+    public void forEach(@NotNull Consumer<? super V> consumer) {
+        for (Object value : values) {
+            if (value != null)
+                consumer.accept((V) value);
+        }
+    }
+
+    /**
+     * @return A new array containing the values.
+     */
+    @NotNull
+    public Object[] toArray() {
+        Object[] array = new Object[size];
+        int i = 0;
+        for (Object value : values) {
+            if (value != null)
+                array[i++] = value;
+        }
+        return array;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    public void clear() {
+        Arrays.fill(values, null);
+        size = 0;
+    }
+}
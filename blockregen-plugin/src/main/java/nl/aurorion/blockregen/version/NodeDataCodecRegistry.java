@@ -0,0 +1,172 @@
+package nl.aurorion.blockregen.version;
+
+import com.google.gson.JsonElement;
+import com.google.gson.JsonObject;
+import com.google.gson.JsonParseException;
+import com.google.gson.JsonParser;
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonToken;
+import com.google.gson.stream.JsonWriter;
+import nl.aurorion.blockregen.version.api.NodeData;
+import nl.aurorion.blockregen.version.api.NodeDataCodec;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+import java.io.StringReader;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * NodeData codecs keyed by their type tag, used by both the json and the binary storage.
+ * <p>
+ * Json objects start with a "type" property holding the tag, followed by the fields written by the codec.
+ * Binary data is the tag followed by the codec's fixed layout.
+ */
+public class NodeDataCodecRegistry {
+
+    private static final String TYPE = "type";
+
+    // Property older versions stored the full class name in.
+    private static final String LEGACY_CLASS_NAME = "className";
+
+    private final Map<String, NodeDataCodec<?>> byTag = new ConcurrentHashMap<>();
+    private final Map<Class<?>, NodeDataCodec<?>> byType = new ConcurrentHashMap<>();
+
+    public void register(@NotNull NodeDataCodec<?> codec) {
+        NodeDataCodec<?> present = byTag.putIfAbsent(codec.getTag(), codec);
+
+        if (present != null && present != codec)
+            throw new IllegalArgumentException("Tag " + codec.getTag() + " is already used by " + present.getType().getName());
+
+        byType.put(codec.getType(), codec);
+    }
+
+    @Nullable
+    @SuppressWarnings("unchecked")
+    public NodeDataCodec<NodeData> getCodec(@NotNull String tag) {
+        return (NodeDataCodec<NodeData>) byTag.get(tag);
+    }
+
+    @Nullable
+    @SuppressWarnings("unchecked")
+    public NodeDataCodec<NodeData> getCodec(@NotNull Class<?> type) {
+        return (NodeDataCodec<NodeData>) byType.get(type);
+    }
+
+    // Match on the simple name, the class might have been relocated since.
+    @Nullable
+    @SuppressWarnings("unchecked")
+    private NodeDataCodec<NodeData> getCodecByClassName(@NotNull String className) {
+        String simpleName = className.substring(className.lastIndexOf('.') + 1);
+
+        for (NodeDataCodec<?> codec : byTag.values()) {
+            if (codec.getType().getSimpleName().equals(simpleName))
+                return (NodeDataCodec<NodeData>) codec;
+        }
+        return null;
+    }
+
+    @NotNull
+    private NodeDataCodec<NodeData> requireCodec(@NotNull NodeData data) throws IOException {
+        NodeDataCodec<NodeData> codec = getCodec(data.getClass());
+
+        if (codec == null)
+            throw new IOException("No codec registered for " + data.getClass().getName());
+        return codec;
+    }
+
+    // --- Json
+
+    public void write(@NotNull JsonWriter writer, @Nullable NodeData data) throws IOException {
+        if (data == null) {
+            writer.nullValue();
+            return;
+        }
+
+        NodeDataCodec<NodeData> codec = requireCodec(data);
+
+        writer.beginObject();
+        writer.name(TYPE).value(codec.getTag());
+        codec.write(data, writer);
+        writer.endObject();
+    }
+
+    @Nullable
+    public NodeData read(@NotNull JsonReader reader) throws IOException {
+        if (reader.peek() == JsonToken.NULL) {
+            reader.nextNull();
+            return null;
+        }
+
+        reader.beginObject();
+
+        if (!reader.hasNext()) {
+            reader.endObject();
+            return null;
+        }
+
+        String name = reader.nextName();
+
+        NodeData data;
+        if (name.equals(TYPE)) {
+            String tag = reader.nextString();
+            NodeDataCodec<NodeData> codec = getCodec(tag);
+
+            if (codec == null)
+                throw new JsonParseException("Unknown node data type " + tag);
+
+            data = codec.read(reader);
+        } else {
+            data = readLegacy(reader, name);
+        }
+
+        reader.endObject();
+        return data;
+    }
+
+    // Written by an older version, the class name can be anywhere in the object. Rare, so it's fine to go through a tree.
+    private NodeData readLegacy(JsonReader reader, String firstName) throws IOException {
+        JsonParser parser = new JsonParser();
+
+        JsonObject object = new JsonObject();
+        object.add(firstName, parser.parse(reader));
+        while (reader.hasNext()) {
+            String name = reader.nextName();
+            object.add(name, parser.parse(reader));
+        }
+
+        JsonElement className = object.remove(LEGACY_CLASS_NAME);
+        NodeDataCodec<NodeData> codec = className == null ? null : getCodecByClassName(className.getAsString());
+
+        if (codec == null)
+            throw new JsonParseException("Unknown node data " + className);
+
+        try (JsonReader objectReader = new JsonReader(new StringReader(object.toString()))) {
+            objectReader.beginObject();
+            return codec.read(objectReader);
+        }
+    }
+
+    // --- Binary
+
+    public void write(@NotNull DataOutput output, @NotNull NodeData data) throws IOException {
+        NodeDataCodec<NodeData> codec = requireCodec(data);
+
+        output.writeUTF(codec.getTag());
+        codec.write(data, output);
+    }
+
+    @NotNull
+    public NodeData read(@NotNull DataInput input) throws IOException {
+        String tag = input.readUTF();
+        NodeDataCodec<NodeData> codec = getCodec(tag);
+
+        if (codec == null)
+            throw new IOException("Unknown node data type " + tag);
+
+        return codec.read(input);
+    }
+}
@@ -46,6 +46,9 @@ public class VersionManager {
     @Getter
     private NodeDataProvider nodeProvider;
 
+    @Getter
+    private final NodeDataCodecRegistry codecRegistry = new NodeDataCodecRegistry();
+
     public VersionManager(BlockRegen plugin) {
         this.plugin = plugin;
     }
@@ -70,6 +73,7 @@ public class VersionManager {
                     useWorldGuard(new LegacyWorldGuardProvider(this.worldGuard));
                 this.methods = new AncientMethods();
                 this.nodeProvider = LegacyNodeData::new;
+                codecRegistry.register(LegacyNodeData.CODEC);
                 break;
             case "1.9":
             case "1.10":
@@ -81,6 +85,7 @@ public class VersionManager {
                     useWorldGuard(new LegacyWorldGuardProvider(this.worldGuard));
                 this.methods = new LegacyMethods();
                 this.nodeProvider = LegacyNodeData::new;
+                codecRegistry.register(LegacyNodeData.CODEC);
                 break;
             case "1.13":
             case "1.14":
@@ -95,6 +100,9 @@ public class VersionManager {
                     useWorldGuard(new LatestWorldGuardProvider(this.worldGuard));
                 this.methods = new LatestMethods();
                 this.nodeProvider = LatestNodeData::new;
+                codecRegistry.register(LatestNodeData.CODEC);
+                // Lets data saved on a legacy server still be read after an update.
+                codecRegistry.register(LegacyNodeData.CODEC);
                 break;
         }
     }
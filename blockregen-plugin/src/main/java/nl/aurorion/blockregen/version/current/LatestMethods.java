@@ -6,6 +6,7 @@ import com.google.common.base.Strings;
 import nl.aurorion.blockregen.StringUtil;
 import nl.aurorion.blockregen.version.api.Methods;
 import org.bukkit.Bukkit;
+import org.bukkit.ChunkSnapshot;
 import org.bukkit.block.Block;
 import org.bukkit.boss.BarColor;
 import org.bukkit.boss.BarStyle;
@@ -71,6 +72,18 @@ public class LatestMethods implements Methods {
         return XMaterial.matchXMaterial(block.getType());
     }
 
+    @Override
+    public XMaterial getType(@NotNull ChunkSnapshot snapshot, int x, int y, int z) {
+        return XMaterial.matchXMaterial(snapshot.getBlockType(x, y, z));
+    }
+
+    // Block data instances are shared per state.
+    @Override
+    @NotNull
+    public Object getState(@NotNull ChunkSnapshot snapshot, int x, int y, int z) {
+        return snapshot.getBlockData(x, y, z);
+    }
+
     @Override
     public ItemStack getItemInMainHand(@NotNull Player player) {
         return player.getInventory().getItemInMainHand();
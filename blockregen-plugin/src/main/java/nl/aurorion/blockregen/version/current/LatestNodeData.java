@@ -1,10 +1,16 @@
 package nl.aurorion.blockregen.version.current;
 
+import lombok.EqualsAndHashCode;
 import lombok.NoArgsConstructor;
 import lombok.ToString;
 import lombok.extern.java.Log;
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonWriter;
+import nl.aurorion.blockregen.version.api.CodecUtil;
 import nl.aurorion.blockregen.version.api.NodeData;
+import nl.aurorion.blockregen.version.api.NodeDataCodec;
 import org.bukkit.Axis;
+import org.bukkit.ChunkSnapshot;
 import org.bukkit.Material;
 import org.bukkit.block.Block;
 import org.bukkit.block.BlockFace;
@@ -12,11 +18,19 @@ import org.bukkit.block.data.*;
 import org.bukkit.block.data.type.Farmland;
 import org.bukkit.block.data.type.Stairs;
 
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+import java.util.logging.Level;
+
 @Log
 @ToString
+@EqualsAndHashCode
 @NoArgsConstructor
 public class LatestNodeData implements NodeData {
 
+    public static final NodeDataCodec<LatestNodeData> CODEC = new Codec();
+
     private BlockFace facing;
 
     private Stairs.Shape stairShape;
@@ -31,9 +45,21 @@ public class LatestNodeData implements NodeData {
 
     @Override
     public void load(Block block) {
-        BlockData data = block.getBlockData();
+        load(block.getBlockData(), block.getRelative(BlockFace.DOWN).getBlockData());
 
-        log.fine(data.toString());
+        log.fine(String.format("Loaded block data %s (%s)", block.getType(), this));
+    }
+
+    // Farmland under the block is a block of the snapshot on its own.
+    @Override
+    public void load(ChunkSnapshot snapshot, int x, int y, int z) {
+        load(snapshot.getBlockData(x, y, z), null);
+    }
+
+    private void load(BlockData data, BlockData underData) {
+        // Called for every block of a region snapshot.
+        if (log.isLoggable(Level.FINE))
+            log.fine(data.toString());
 
         if (data instanceof Directional) {
             this.facing = ((Directional) data).getFacing();
@@ -56,13 +82,9 @@ public class LatestNodeData implements NodeData {
         }
 
         // Check for farmland under this block
-        BlockData underData = block.getRelative(BlockFace.DOWN).getBlockData();
-
         if (underData instanceof Farmland) {
             this.farmland = true;
         }
-
-        log.fine(String.format("Loaded block data %s (%s)", block.getType(), this));
     }
 
     @Override
@@ -95,4 +117,83 @@ public class LatestNodeData implements NodeData {
 
         block.setBlockData(blockData);
     }
+
+    private static class Codec implements NodeDataCodec<LatestNodeData> {
+
+        @Override
+        public String getTag() {
+            return "latest";
+        }
+
+        @Override
+        public Class<LatestNodeData> getType() {
+            return LatestNodeData.class;
+        }
+
+        @Override
+        public void write(LatestNodeData data, JsonWriter writer) throws IOException {
+            CodecUtil.writeEnum(writer, "facing", data.facing);
+            CodecUtil.writeEnum(writer, "stairShape", data.stairShape);
+            CodecUtil.writeEnum(writer, "axis", data.axis);
+            CodecUtil.writeEnum(writer, "rotation", data.rotation);
+
+            if (data.age != -1)
+                writer.name("age").value(data.age);
+            if (data.farmland)
+                writer.name("farmland").value(true);
+        }
+
+        @Override
+        public LatestNodeData read(JsonReader reader) throws IOException {
+            LatestNodeData data = new LatestNodeData();
+
+            while (reader.hasNext()) {
+                switch (reader.nextName()) {
+                    case "facing":
+                        data.facing = CodecUtil.readEnum(reader, BlockFace.class);
+                        break;
+                    case "stairShape":
+                        data.stairShape = CodecUtil.readEnum(reader, Stairs.Shape.class);
+                        break;
+                    case "axis":
+                        data.axis = CodecUtil.readEnum(reader, Axis.class);
+                        break;
+                    case "rotation":
+                        data.rotation = CodecUtil.readEnum(reader, BlockFace.class);
+                        break;
+                    case "age":
+                        data.age = reader.nextInt();
+                        break;
+                    case "farmland":
+                        data.farmland = reader.nextBoolean();
+                        break;
+                    default:
+                        reader.skipValue();
+                }
+            }
+            return data;
+        }
+
+        @Override
+        public void write(LatestNodeData data, DataOutput output) throws IOException {
+            CodecUtil.writeEnum(output, data.facing);
+            CodecUtil.writeEnum(output, data.stairShape);
+            CodecUtil.writeEnum(output, data.axis);
+            CodecUtil.writeEnum(output, data.rotation);
+            output.writeInt(data.age);
+            output.writeBoolean(data.farmland);
+        }
+
+        @Override
+        public LatestNodeData read(DataInput input) throws IOException {
+            LatestNodeData data = new LatestNodeData();
+            data.facing = CodecUtil.readEnum(input, BlockFace.class);
+            data.stairShape = CodecUtil.readEnum(input, Stairs.Shape.class);
+            data.axis = CodecUtil.readEnum(input, Axis.class);
+            data.rotation = CodecUtil.readEnum(input, BlockFace.class);
+            data.age = input.readInt();
+            data.farmland = input.readBoolean();
+            return data;
+        }
+    }
 }
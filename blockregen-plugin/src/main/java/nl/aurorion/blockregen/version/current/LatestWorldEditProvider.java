@@ -3,7 +3,17 @@ package nl.aurorion.blockregen.version.current;
 import com.sk89q.worldedit.IncompleteRegionException;
 import com.sk89q.worldedit.bukkit.BukkitAdapter;
 import com.sk89q.worldedit.bukkit.WorldEditPlugin;
+import com.sk89q.worldedit.math.BlockVector2;
+import com.sk89q.worldedit.math.Vector2;
+import com.sk89q.worldedit.math.Vector3;
+import com.sk89q.worldedit.regions.CylinderRegion;
+import com.sk89q.worldedit.regions.EllipsoidRegion;
+import com.sk89q.worldedit.regions.Polygonal2DRegion;
 import com.sk89q.worldedit.regions.Region;
+import nl.aurorion.blockregen.system.region.shape.CylinderShape;
+import nl.aurorion.blockregen.system.region.shape.PolygonShape;
+import nl.aurorion.blockregen.system.region.shape.RegionShape;
+import nl.aurorion.blockregen.system.region.shape.SphereShape;
 import nl.aurorion.blockregen.system.region.struct.RegionSelection;
 import nl.aurorion.blockregen.version.api.WorldEditProvider;
 import org.bukkit.Location;
@@ -12,6 +22,8 @@ import org.bukkit.entity.Player;
 import org.jetbrains.annotations.NotNull;
 import org.jetbrains.annotations.Nullable;
 
+import java.util.List;
+
 public class LatestWorldEditProvider implements WorldEditProvider {
 
     private final WorldEditPlugin worldEdit;
@@ -44,6 +56,39 @@ public class LatestWorldEditProvider implements WorldEditProvider {
         Location min = BukkitAdapter.adapt(world, selection.getMinimumPoint());
         Location max = BukkitAdapter.adapt(world, selection.getMaximumPoint());
 
-        return new RegionSelection(min, max);
+        return new RegionSelection(min, max, createShape(selection));
+    }
+
+    // Null for cuboids and shapes we don't support, those use the bounding box.
+    @Nullable
+    private RegionShape createShape(Region selection) {
+        int minY = selection.getMinimumPoint().getBlockY();
+        int maxY = selection.getMaximumPoint().getBlockY();
+
+        if (selection instanceof Polygonal2DRegion) {
+            List<BlockVector2> points = ((Polygonal2DRegion) selection).getPoints();
+
+            int[] xs = new int[points.size()];
+            int[] zs = new int[points.size()];
+            for (int i = 0; i < points.size(); i++) {
+                xs[i] = points.get(i).getBlockX();
+                zs[i] = points.get(i).getBlockZ();
+            }
+            return new PolygonShape(xs, zs, minY, maxY);
+        } else if (selection instanceof CylinderRegion) {
+            CylinderRegion cylinder = (CylinderRegion) selection;
+            Vector3 center = cylinder.getCenter();
+            Vector2 radius = cylinder.getRadius();
+
+            // WorldEdit reports the radius without the half block it adds for containment.
+            return new CylinderShape(center.getX(), center.getZ(), radius.getX() + 0.5, radius.getZ() + 0.5, minY, maxY);
+        } else if (selection instanceof EllipsoidRegion) {
+            EllipsoidRegion ellipsoid = (EllipsoidRegion) selection;
+            Vector3 center = ellipsoid.getCenter();
+            Vector3 radius = ellipsoid.getRadius();
+
+            return new SphereShape(center.getX(), center.getY(), center.getZ(), radius.getX() + 0.5, radius.getY() + 0.5, radius.getZ() + 0.5);
+        }
+        return null;
     }
 }
\ No newline at end of file
@@ -0,0 +1,64 @@
+package nl.aurorion.blockregen.system.regeneration.struct;
+
+import com.cryptomorin.xseries.XMaterial;
+import nl.aurorion.blockregen.util.ConcurrentLongObjectMap;
+import nl.aurorion.blockregen.util.LocationUtil;
+import nl.aurorion.blockregen.version.api.NodeData;
+import nl.aurorion.blockregen.version.current.LatestNodeData;
+import org.openjdk.jol.info.ClassLayout;
+import org.openjdk.jol.info.GraphLayout;
+import org.openjdk.jol.util.Multiset;
+import org.openjdk.jol.vm.VM;
+
+/**
+ * Retained heap per loaded regeneration process, without what's shared between processes
+ * (world, preset and region names, materials and interned node data).
+ * <p>
+ * Run with the benchmark profile: {@code mvn -P benchmark -pl blockregen-plugin -am test}
+ */
+public class ProcessFootprint {
+
+    private static final int COUNT = 100_000;
+
+    public static void main(String[] args) {
+        System.out.println(VM.current().details());
+        System.out.println(ClassLayout.parseClass(RegenerationProcess.class).toPrintable());
+        System.out.println(ClassLayout.parseClass(SimpleLocation.class).toPrintable());
+
+        // Shared the same way as after loading, see RegenerationProcess#convertLocation() and #convertPreset().
+        String world = "world";
+        String[] presets = {"stone", "diamond_ore", "oak_log"};
+        String[] regions = {"mine", "forest", null};
+        XMaterial[] materials = {XMaterial.STONE, XMaterial.DIAMOND_ORE, XMaterial.OAK_LOG};
+        NodeData data = new LatestNodeData();
+
+        RegenerationProcess[] processes = new RegenerationProcess[COUNT];
+        ConcurrentLongObjectMap<RegenerationProcess> cache = new ConcurrentLongObjectMap<>();
+
+        for (int i = 0; i < COUNT; i++) {
+            SimpleLocation location = new SimpleLocation(world, i % 1000, 64, i / 1000);
+            processes[i] = new RegenerationProcess(location, materials[i % 3], data, presets[i % 3], regions[i % 3], 60_000L);
+            cache.put(LocationUtil.blockKey(location.getX(), location.getY(), location.getZ()), processes[i]);
+        }
+
+        Object[] shared = {world, presets, regions, materials, data};
+
+        long process = retained(new Object[]{processes}, shared) - VM.current().sizeOf(processes);
+        long cached = retained(new Object[]{cache}, shared);
+
+        System.out.printf("Process: %d bytes%n", process / COUNT);
+        System.out.printf("Process with its cache entry: %d bytes%n", cached / COUNT);
+    }
+
+    // Sizes are compared per class, objects might move between the two walks.
+    private static long retained(Object[] roots, Object[] shared) {
+        Multiset<Class<?>> all = GraphLayout.parseInstance(roots).getClassSizes();
+        Multiset<Class<?>> excluded = GraphLayout.parseInstance(shared).getClassSizes();
+
+        long bytes = 0;
+        for (Class<?> type : all.keys()) {
+            bytes += Math.max(0, all.count(type) - excluded.count(type));
+        }
+        return bytes;
+    }
+}
@@ -0,0 +1,117 @@
+package nl.aurorion.blockregen.system.region;
+
+import nl.aurorion.blockregen.system.region.struct.RegenerationRegion;
+import org.bukkit.Location;
+import org.bukkit.World;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.lang.reflect.Proxy;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Region lookup by location through the chunk grid against walking every loaded region like before.
+ * <p>
+ * Regions are 24x24 blocks spaced 48 blocks apart, lookups hit a region about every fourth time.
+ * Run with the benchmark profile: {@code mvn -P benchmark -pl blockregen-plugin -am test -Dbenchmark=RegionIndex}
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class RegionIndexBenchmark {
+
+    private static final int SPACING = 48;
+    private static final int SIZE = 24;
+
+    // Power of two, cycled through with a mask.
+    private static final int LOCATIONS = 4096;
+
+    @Param({"10", "1000", "10000"})
+    public int regions;
+
+    private final RegionIndex index = new RegionIndex();
+
+    private final Map<String, RegenerationRegion> loadedRegions = new HashMap<>();
+
+    private final Location[] locations = new Location[LOCATIONS];
+
+    private int next = 0;
+
+    // Locations only keep a weak reference.
+    private World world;
+
+    @Setup
+    public void setup() {
+        this.world = world("world");
+
+        int side = (int) Math.ceil(Math.sqrt(regions));
+
+        for (int i = 0; i < regions; i++) {
+            int x = (i % side) * SPACING;
+            int z = (i / side) * SPACING;
+
+            RegenerationRegion region = new RegenerationRegion("region-" + i,
+                    new Location(world, x, 0, z), new Location(world, x + SIZE - 1, 100, z + SIZE - 1));
+
+            index.add(region);
+            loadedRegions.put(region.getName(), region);
+        }
+
+        Random random = new Random(42);
+        for (int i = 0; i < LOCATIONS; i++) {
+            locations[i] = new Location(world, random.nextInt(side * SPACING), random.nextInt(100), random.nextInt(side * SPACING));
+        }
+    }
+
+    @Benchmark
+    public RegenerationRegion index() {
+        return index.find(nextLocation());
+    }
+
+    @Benchmark
+    public RegenerationRegion linearScan() {
+        Location location = nextLocation();
+
+        for (RegenerationRegion region : loadedRegions.values()) {
+            if (region.contains(location))
+                return region;
+        }
+        return null;
+    }
+
+    private Location nextLocation() {
+        return locations[next++ & (LOCATIONS - 1)];
+    }
+
+    // Regions only need the name and identity of the world.
+    private static World world(String name) {
+        return (World) Proxy.newProxyInstance(World.class.getClassLoader(), new Class[]{World.class}, (proxy, method, args) -> {
+            switch (method.getName()) {
+                case "getName":
+                case "toString":
+                    return name;
+                case "equals":
+                    return proxy == args[0];
+                case "hashCode":
+                    return System.identityHashCode(proxy);
+                default:
+                    throw new UnsupportedOperationException(method.getName());
+            }
+        });
+    }
+}
@@ -0,0 +1,49 @@
+package nl.aurorion.blockregen.version.api;
+
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonToken;
+import com.google.gson.stream.JsonWriter;
+import lombok.experimental.UtilityClass;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+
+/*
+    Helpers for NodeData codecs. Enums are stored by name, ordinals differ between server versions.
+*/
+@UtilityClass
+public class CodecUtil {
+
+    /* Write the field only if the value is set. */
+    public void writeEnum(JsonWriter writer, String name, Enum<?> value) throws IOException {
+        if (value != null)
+            writer.name(name).value(value.name());
+    }
+
+    /* Null if the value is null or not a constant on this version. */
+    public <E extends Enum<E>> E readEnum(JsonReader reader, Class<E> type) throws IOException {
+        if (reader.peek() == JsonToken.NULL) {
+            reader.nextNull();
+            return null;
+        }
+        return parseEnum(type, reader.nextString());
+    }
+
+    public void writeEnum(DataOutput output, Enum<?> value) throws IOException {
+        output.writeUTF(value == null ? "" : value.name());
+    }
+
+    public <E extends Enum<E>> E readEnum(DataInput input, Class<E> type) throws IOException {
+        String name = input.readUTF();
+        return name.isEmpty() ? null : parseEnum(type, name);
+    }
+
+    private <E extends Enum<E>> E parseEnum(Class<E> type, String name) {
+        try {
+            return Enum.valueOf(type, name);
+        } catch (IllegalArgumentException e) {
+            return null;
+        }
+    }
+}
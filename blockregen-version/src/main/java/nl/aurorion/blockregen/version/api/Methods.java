@@ -1,6 +1,7 @@
 package nl.aurorion.blockregen.version.api;
 
 import com.cryptomorin.xseries.XMaterial;
+import org.bukkit.ChunkSnapshot;
 import org.bukkit.block.Block;
 import org.bukkit.boss.BossBar;
 import org.bukkit.entity.Player;
@@ -27,6 +28,14 @@ public interface Methods {
 
     XMaterial getType(@NotNull Block block) throws IllegalArgumentException;
 
+    /* Safe to call off the main thread. Coordinates are relative to the chunk. */
+    @Nullable
+    XMaterial getType(@NotNull ChunkSnapshot snapshot, int x, int y, int z);
+
+    /* Key of the block state, equal keys have the same type and data. Safe to call off the main thread. Coordinates are relative to the chunk. */
+    @NotNull
+    Object getState(@NotNull ChunkSnapshot snapshot, int x, int y, int z);
+
     default boolean compareType(@NotNull Block block, @NotNull XMaterial xMaterial) {
         return getType(block) == xMaterial;
     }
@@ -1,15 +1,20 @@
 package nl.aurorion.blockregen.version.api;
 
+import org.bukkit.ChunkSnapshot;
 import org.bukkit.block.Block;
 
 /* 
     Interface for NodeData implementations on different versions. NodeData holds information about the Block that's been broken. Allows to place it back with correct BlockData.
     Any implementation has to be easily serializable into Json.
+    Loaded instances are shared between processes, so implementations need equals & hashCode and must not change after #load().
 */
 public interface NodeData {
     /* Load the blocks block data. */
     void load(Block block);
 
+    /* Load the block data from a chunk snapshot, safe to call off the main thread. Coordinates are relative to the chunk. */
+    void load(ChunkSnapshot snapshot, int x, int y, int z);
+
     /* Place the block with corresponding Block data. */
     void place(Block block);
 }
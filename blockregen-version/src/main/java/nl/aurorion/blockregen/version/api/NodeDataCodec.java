@@ -0,0 +1,32 @@
+package nl.aurorion.blockregen.version.api;
+
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonWriter;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+
+/*
+    Reads and writes a NodeData implementation field by field, without reflection.
+    Stored data is marked with the tag instead of the class name, so it doesn't break when classes move.
+*/
+public interface NodeDataCodec<T extends NodeData> {
+
+    /* Short identifier stored with the data. Must not change once released. */
+    String getTag();
+
+    Class<T> getType();
+
+    /* Write the fields into an already opened json object. Fields with default values can be left out. */
+    void write(T data, JsonWriter writer) throws IOException;
+
+    /* Read the fields of an already opened json object up to its end, skipping unknown ones. */
+    T read(JsonReader reader) throws IOException;
+
+    /* Write the fields in a fixed order. */
+    void write(T data, DataOutput output) throws IOException;
+
+    /* Read the fields in the order they were written. */
+    T read(DataInput input) throws IOException;
+}